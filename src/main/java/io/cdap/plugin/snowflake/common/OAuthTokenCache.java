@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common;
+
+import com.google.common.hash.Hashing;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches OAuth2 access tokens for the whole JVM, so that a token is not requested for every accessor.
+ * A token is reused until shortly before it expires. Once most of its lifetime has passed, it is refreshed
+ * in the background, while the current token is still returned.
+ */
+public class OAuthTokenCache {
+  private static final Logger LOG = LoggerFactory.getLogger(OAuthTokenCache.class);
+  private static final OAuthTokenCache INSTANCE = new OAuthTokenCache(OAuthTokenCache::requestAccessToken);
+  // tokens are not used when they expire in less than this margin, as login may take a while
+  private static final long EXPIRY_MARGIN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  // share of the lifetime after which the token is refreshed in the background
+  private static final double REFRESH_RATIO = 0.75;
+
+  private final Function<BaseSnowflakeConfig, OAuthUtil.AccessToken> tokenRequester;
+  private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+  // token requests in flight, so that concurrent callers wait for the same request
+  private final Map<String, CompletableFuture<CachedToken>> requests = new ConcurrentHashMap<>();
+  private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "snowflake-oauth-token-refresh");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  OAuthTokenCache(Function<BaseSnowflakeConfig, OAuthUtil.AccessToken> tokenRequester) {
+    this.tokenRequester = tokenRequester;
+  }
+
+  public static OAuthTokenCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns a valid access token for the account and client of the config.
+   *
+   * @param config config with OAuth2 enabled.
+   * @return access token.
+   */
+  public String getAccessToken(BaseSnowflakeConfig config) {
+    String key = getKey(config);
+    long now = System.currentTimeMillis();
+    CachedToken token = tokens.get(key);
+    if (token == null || now >= token.expiresAt) {
+      token = refresh(key, config, now);
+    } else if (now >= token.refreshAt && token.startRefresh()) {
+      refreshExecutor.execute(() -> {
+        try {
+          refresh(key, config, System.currentTimeMillis());
+        } catch (RuntimeException e) {
+          // the current token is still valid, it is refreshed again on the next request
+          LOG.warn("Failed to refresh OAuth2 access token in the background", e);
+          tokens.computeIfPresent(key, (k, cached) -> cached.withRefreshDone());
+        }
+      });
+    }
+    return token.value;
+  }
+
+  private CachedToken refresh(String key, BaseSnowflakeConfig config, long now) {
+    // only one request per key at a time, concurrent callers wait for its token
+    CompletableFuture<CachedToken> request = new CompletableFuture<>();
+    CompletableFuture<CachedToken> pending = requests.putIfAbsent(key, request);
+    if (pending != null) {
+      try {
+        return pending.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+    }
+
+    try {
+      // another caller may have refreshed the token in the meantime
+      CachedToken cached = tokens.get(key);
+      if (cached == null || now >= cached.refreshAt || now >= cached.expiresAt) {
+        // the token is requested outside of any map operation, so that other keys are not blocked by it
+        long issuedAt = System.currentTimeMillis();
+        OAuthUtil.AccessToken accessToken = tokenRequester.apply(config);
+        cached = new CachedToken(accessToken.getValue(), issuedAt,
+                                 TimeUnit.SECONDS.toMillis(accessToken.getExpiresInSeconds()));
+        tokens.put(key, cached);
+      }
+      request.complete(cached);
+      return cached;
+    } catch (RuntimeException e) {
+      request.completeExceptionally(e);
+      throw e;
+    } finally {
+      requests.remove(key, request);
+    }
+  }
+
+  private static String getKey(BaseSnowflakeConfig config) {
+    // refresh token is a secret, so only its hash is kept
+    String key = String.join("\u0000", config.getAccountName(), config.getClientId(), config.getClientSecret(),
+                             config.getRefreshToken());
+    return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+  }
+
+  private static OAuthUtil.AccessToken requestAccessToken(BaseSnowflakeConfig config) {
+    CloseableHttpClient httpClient = HttpClients.createDefault();
+    try {
+      return OAuthUtil.getAccessToken(httpClient, config);
+    } finally {
+      try {
+        httpClient.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to close HTTP client", e);
+      }
+    }
+  }
+
+  private static class CachedToken {
+    private final String value;
+    private final long refreshAt;
+    private final long expiresAt;
+    private volatile boolean refreshing;
+
+    private CachedToken(String value, long issuedAt, long lifetimeMillis) {
+      this.value = value;
+      this.refreshAt = issuedAt + (long) (lifetimeMillis * REFRESH_RATIO);
+      this.expiresAt = issuedAt + lifetimeMillis - EXPIRY_MARGIN_MILLIS;
+    }
+
+    private synchronized boolean startRefresh() {
+      if (refreshing) {
+        return false;
+      }
+      refreshing = true;
+      return true;
+    }
+
+    private CachedToken withRefreshDone() {
+      refreshing = false;
+      return this;
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package io.cdap.plugin.snowflake.common;
 
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import io.cdap.plugin.snowflake.common.exception.ConnectionTimeoutException;
@@ -39,8 +40,22 @@ public class OAuthUtil {
 
   private static final JsonParser parser = new JsonParser();
 
+  // Snowflake OAuth access tokens are valid for 10 minutes, unless the response says otherwise
+  private static final long DEFAULT_EXPIRES_IN_SECONDS = 600;
+
   public static String getAccessTokenByRefreshToken(CloseableHttpClient httpclient,
                                                     BaseSnowflakeConfig config) {
+    return getAccessToken(httpclient, config).getValue();
+  }
+
+  /**
+   * Requests a new access token by the refresh token of the config.
+   *
+   * @param httpclient client used for the request, it is not closed.
+   * @param config config with the account, client and refresh token.
+   * @return access token along with its lifetime.
+   */
+  public static AccessToken getAccessToken(CloseableHttpClient httpclient, BaseSnowflakeConfig config) {
     try {
       String tokenUrl = String.format("https://%s.snowflakecomputing.com/oauth/token-request",
                                       config.getAccountName());
@@ -59,13 +74,16 @@ public class OAuthUtil {
       String encondedAuthorization = new String(Base64.getEncoder().encode(stringToEncode.getBytes()));
       httppost.setHeader("Authorization", String.format("Basic %s", encondedAuthorization));
 
+      String responseString;
+      try (CloseableHttpResponse response = httpclient.execute(httppost)) {
+        responseString = EntityUtils.toString(response.getEntity(), "UTF-8");
+      }
 
-      CloseableHttpResponse response = httpclient.execute(httppost);
-      String responseString = EntityUtils.toString(response.getEntity(), "UTF-8");
-
+      JsonObject jsonObject = null;
       JsonElement jsonElement = null;
       try {
-        jsonElement = parser.parse(responseString).getAsJsonObject().get("access_token");
+        jsonObject = parser.parse(responseString).getAsJsonObject();
+        jsonElement = jsonObject.get("access_token");
       } catch (JsonSyntaxException ex) {
         // this will be handled below
       }
@@ -75,11 +93,34 @@ public class OAuthUtil {
         throw new RuntimeException(String.format("Unexpected response '%s' from '%s'", responseString, uri.toString()));
       }
 
-      return jsonElement.getAsString();
+      JsonElement expiresIn = jsonObject.get("expires_in");
+      long expiresInSeconds = expiresIn == null ? DEFAULT_EXPIRES_IN_SECONDS : expiresIn.getAsLong();
+      return new AccessToken(jsonElement.getAsString(), expiresInSeconds);
     } catch (URISyntaxException e) {
       throw new IllegalArgumentException("Failed to build token URI for OAuth2.", e);
     } catch (IOException e) {
       throw new ConnectionTimeoutException("Failed to get refresh token for OAuth2.", e);
     }
   }
+
+  /**
+   * OAuth2 access token and the number of seconds it is valid for since it was issued.
+   */
+  public static class AccessToken {
+    private final String value;
+    private final long expiresInSeconds;
+
+    public AccessToken(String value, long expiresInSeconds) {
+      this.value = value;
+      this.expiresInSeconds = expiresInSeconds;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public long getExpiresInSeconds() {
+      return expiresInSeconds;
+    }
+  }
 }
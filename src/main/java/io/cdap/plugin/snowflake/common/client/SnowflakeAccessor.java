@@ -17,80 +17,197 @@
 package io.cdap.plugin.snowflake.common.client;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.plugin.common.KeyValueListParser;
 import io.cdap.plugin.snowflake.common.BaseSnowflakeConfig;
-import io.cdap.plugin.snowflake.common.OAuthUtil;
+import io.cdap.plugin.snowflake.common.OAuthTokenCache;
 import io.cdap.plugin.snowflake.common.exception.ConnectionTimeoutException;
-import io.cdap.plugin.snowflake.common.util.QueryUtil;
 import net.snowflake.client.jdbc.SnowflakeBasicDataSource;
-import org.apache.http.impl.client.HttpClients;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * A class which accesses Snowflake API.
  */
 public class SnowflakeAccessor {
   private static final String APPLICATION_NAME = "CDAP";
-  private static final int LIMIT_ROWS = 1;
+  // describe results are cached per JVM, so that the input format and tasks of a run don't describe the same
+  // query again. Only the run paths read from the cache, so that configure and validation see schema changes.
+  private static final Cache<String, List<SnowflakeFieldDescriptor>> DESCRIBE_CACHE = CacheBuilder.newBuilder()
+    .maximumSize(100)
+    .expireAfterWrite(5, TimeUnit.MINUTES)
+    .build();
+
+  private static final String PROPERTY_SESSION_KEEP_ALIVE = "CLIENT_SESSION_KEEP_ALIVE";
 
   private final BaseSnowflakeConfig config;
   protected final SnowflakeBasicDataSource dataSource;
+  // identifies connections opened with the same configuration in the connection pool
+  private final String connectionKey;
 
   public SnowflakeAccessor(BaseSnowflakeConfig config) {
     this.config = config;
     this.dataSource = new SnowflakeBasicDataSource();
+    this.connectionKey = getConnectionKey(config);
     initDataSource(dataSource, config);
   }
 
+  /**
+   * Returns a connection from the connection pool of the JVM. Closing the connection returns it to the pool.
+   *
+   * @return Snowflake connection.
+   * @throws SQLException thrown if a new connection cannot be opened.
+   */
+  protected Connection getConnection() throws SQLException {
+    return SnowflakeConnectionPool.getInstance().getConnection(connectionKey, this::openConnection);
+  }
+
+  /**
+   * Returns a connection from the connection pool of the JVM for a stage file transfer. Unlike statements,
+   * transfers are not limited by the maximum number of borrowed connections.
+   *
+   * @return Snowflake connection.
+   * @throws SQLException thrown if a new connection cannot be opened.
+   */
+  protected Connection getTransferConnection() throws SQLException {
+    return SnowflakeConnectionPool.getInstance().getTransferConnection(connectionKey, this::openConnection);
+  }
+
+  /**
+   * Opens a connection outside of the connection pool, for statements which change the state of the session,
+   * e.g. ALTER SESSION, USE or an open transaction, so that the state is not passed on to the next user
+   * of a pooled connection. Closing the connection closes the session.
+   *
+   * @return Snowflake connection.
+   * @throws SQLException thrown if the connection cannot be opened.
+   */
+  protected Connection openSessionConnection() throws SQLException {
+    return openConnection();
+  }
+
+  private synchronized Connection openConnection() throws SQLException {
+    if (config.getOauth2Enabled()) {
+      setAccessToken(dataSource, config);
+    }
+    return dataSource.getConnection();
+  }
+
+  private static void setAccessToken(SnowflakeBasicDataSource dataSource, BaseSnowflakeConfig config) {
+    String accessToken = OAuthTokenCache.getInstance().getAccessToken(config);
+    dataSource.setOauthToken(accessToken);
+    // The recommend way to pass token is in the password when you use the driver with connection pool.
+    // This is also a mandatory field, so adding the same.
+    // Refer https://github.com/snowflakedb/snowflake-jdbc/issues/1175
+    dataSource.setPassword(accessToken);
+  }
+
   public void runSQL(String query) throws IOException {
-    try (Connection connection = dataSource.getConnection();
-         PreparedStatement populateStmt = connection.prepareStatement(query);) {
+    try (Connection connection = getConnection()) {
+      runSQL(connection, query);
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Runs a statement, which may change the state of the session, on a connection of its own.
+   *
+   * @param query statement to run.
+   * @throws IOException thrown if the statement fails.
+   */
+  public void runSessionSQL(String query) throws IOException {
+    try (Connection connection = openSessionConnection()) {
+      runSQL(connection, query);
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void runSQL(Connection connection, String query) throws IOException {
+    try (PreparedStatement populateStmt = connection.prepareStatement(query)) {
       populateStmt.execute();
     } catch (SQLException e) {
       throw new IOException(String.format("Statement '%s' failed due to '%s'", query, e.getMessage()), e);
     }
+  }
 
+  /**
+   * Returns field descriptors for specified import query, as cached by an earlier describe of the same query
+   * within the last few minutes. Meant for the run paths, which describe the query resolved in prepareRun again.
+   *
+   * @return List of field descriptors.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  public List<SnowflakeFieldDescriptor> describeQueryCached(String query) throws IOException {
+    List<SnowflakeFieldDescriptor> cached = DESCRIBE_CACHE.getIfPresent(connectionKey + query);
+    return cached != null ? cached : describeQuery(query);
   }
 
   /**
-   * Returns field descriptors for specified import query.
+   * Returns field descriptors for specified import query. The query is only compiled by Snowflake to get
+   * the metadata of its result, it is not executed. The result is cached for {@link #describeQueryCached(String)}.
    *
    * @return List of field descriptors.
    * @throws IOException thrown if there are any issue with the I/O operations.
    */
   public List<SnowflakeFieldDescriptor> describeQuery(String query) throws IOException {
-    String importQuery = QueryUtil.limitQuery(query, LIMIT_ROWS);
     List<SnowflakeFieldDescriptor> fieldDescriptors = new ArrayList<>();
-
-    try (Connection connection = dataSource.getConnection();
-         PreparedStatement preparedStatement = connection.prepareStatement(importQuery);
-         ResultSet resultSet = preparedStatement.executeQuery()) {
-      ResultSetMetaData metaData = resultSet.getMetaData();
+    try (Connection connection = getConnection();
+         PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+      // Snowflake describes the statement on prepare, so metadata is available without executing it
+      ResultSetMetaData metaData = preparedStatement.getMetaData();
+      if (metaData == null) {
+        throw new IOException(String.format("Query '%s' does not return a result", query));
+      }
       int columnCount = metaData.getColumnCount();
       for (int i = 1; i <= columnCount; i++) {
         String name = metaData.getColumnName(i);
         int type = metaData.getColumnType(i);
         boolean nullable = metaData.isNullable(i) == ResultSetMetaData.columnNullable;
-        fieldDescriptors.add(new SnowflakeFieldDescriptor(name, type, nullable));
+        // precision of non numeric types is a length or a fractional seconds precision
+        int precision = isNumeric(type) ? metaData.getPrecision(i) : 0;
+        int scale = isNumeric(type) ? metaData.getScale(i) : 0;
+        fieldDescriptors.add(new SnowflakeFieldDescriptor(name, type, nullable, precision, scale));
       }
     } catch (SQLException e) {
       throw new IOException(e);
     }
-    return fieldDescriptors;
+    List<SnowflakeFieldDescriptor> result = Collections.unmodifiableList(fieldDescriptors);
+    DESCRIBE_CACHE.put(connectionKey + query, result);
+    return result;
+  }
+
+  private static boolean isNumeric(int type) {
+    switch (type) {
+      case Types.BIGINT:
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+      case Types.INTEGER:
+      case Types.SMALLINT:
+      case Types.TINYINT:
+        return true;
+      default:
+        return false;
+    }
   }
 
   private void initDataSource(SnowflakeBasicDataSource dataSource, BaseSnowflakeConfig config) {
@@ -109,12 +226,8 @@ public class SnowflakeAccessor {
     }
 
     if (config.getOauth2Enabled()) {
-      String accessToken = OAuthUtil.getAccessTokenByRefreshToken(HttpClients.createDefault(), config);
-      dataSource.setOauthToken(accessToken);
-      // The recommend way to pass token is in the password when you use the driver with connection pool.
-      // This is also a mandatory field, so adding the same.
-      // Refer https://github.com/snowflakedb/snowflake-jdbc/issues/1175
-      dataSource.setPassword(accessToken);
+      // the token is set again before each new connection is opened, as it may expire in the meantime
+      setAccessToken(dataSource, config);
     } else if (config.getKeyPairEnabled()) {
       dataSource.setUser(config.getUsername());
 
@@ -128,10 +241,18 @@ public class SnowflakeAccessor {
       dataSource.setUser(config.getUsername());
       dataSource.setPassword(config.getPassword());
     }
-    String connectionArguments = config.getConnectionArguments();
-    if (!Strings.isNullOrEmpty(connectionArguments)) {
-      addConnectionArguments(dataSource, connectionArguments);
-    }
+    addConnectionArguments(dataSource, config.getConnectionArguments());
+  }
+
+  private static String getConnectionKey(BaseSnowflakeConfig config) {
+    // credentials are part of the key, so it is hashed to not keep them in the pool
+    String key = String.join("\u0000", config.getAccountName(), config.getDatabase(), config.getSchemaName(),
+                             config.getWarehouse(), config.getRole(), config.getUsername(), config.getPassword(),
+                             String.valueOf(config.getKeyPairEnabled()), config.getPrivateKey(),
+                             config.getPassphrase(), String.valueOf(config.getOauth2Enabled()),
+                             config.getClientId(), config.getClientSecret(), config.getRefreshToken(),
+                             config.getConnectionArguments());
+    return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
   }
 
   /**
@@ -139,21 +260,25 @@ public class SnowflakeAccessor {
    * of exception would be generated {@link ConnectionTimeoutException}
    */
   public void checkConnection() {
-    try (Connection connection = dataSource.getConnection()) {
+    try (Connection connection = getConnection()) {
       connection.getMetaData();
     } catch (SQLException e) {
       throw new ConnectionTimeoutException("Cannot create Snowflake connection.", e);
     }
   }
   // SnowflakeBasicDataSource doesn't provide access for additional properties.
-  private void addConnectionArguments(SnowflakeBasicDataSource dataSource, String connectionArguments) {
+  private void addConnectionArguments(SnowflakeBasicDataSource dataSource, @Nullable String connectionArguments) {
     try {
       Class<? extends SnowflakeBasicDataSource> dataSourceClass = dataSource.getClass();
       Field propertiesField = dataSourceClass.getDeclaredField("properties");
       propertiesField.setAccessible(true);
       Properties properties = (Properties) propertiesField.get(dataSource);
-      for (KeyValue<String, String> argument : KeyValueListParser.DEFAULT.parse(connectionArguments)) {
-        properties.setProperty(argument.getKey(), argument.getValue());
+      // pooled connections may stay idle longer than the session timeout
+      properties.setProperty(PROPERTY_SESSION_KEEP_ALIVE, Boolean.TRUE.toString());
+      if (!Strings.isNullOrEmpty(connectionArguments)) {
+        for (KeyValue<String, String> argument : KeyValueListParser.DEFAULT.parse(connectionArguments)) {
+          properties.setProperty(argument.getKey(), argument.getValue());
+        }
       }
       properties.setProperty("application", APPLICATION_NAME);
     } catch (NoSuchFieldException | IllegalAccessException e) {
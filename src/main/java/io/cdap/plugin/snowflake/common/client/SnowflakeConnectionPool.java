@@ -0,0 +1,311 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of Snowflake connections shared by all the accessors of a JVM, so that a session is not opened
+ * for each statement. Idle connections are kept per connection key, which identifies the account, credentials
+ * and connection arguments they were opened with.
+ * <p>
+ * Connections returned by the pool are proxies, closing them returns the underlying connection to the pool.
+ * The number of connections borrowed per key for statements is bounded, getting a connection waits for one to be
+ * returned once the limit is reached. Connections for file transfers are not bounded, as they are held for as long
+ * as a file is written or read and writers may wait for their own pending transfers. The number of idle connections
+ * per key is bounded and connections idle for too long are closed.
+ * The session of a returned connection is not reset, so statements changing the session state must run on
+ * connections outside of the pool.
+ */
+public class SnowflakeConnectionPool {
+  private static final Logger LOG = LoggerFactory.getLogger(SnowflakeConnectionPool.class);
+  private static final SnowflakeConnectionPool INSTANCE =
+    new SnowflakeConnectionPool(8, 32, TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(10));
+  private static final long EVICTION_INTERVAL_SECONDS = 30;
+
+  private final int maxIdlePerKey;
+  private final int maxBorrowedPerKey;
+  private final long idleTimeoutMillis;
+  private final long borrowTimeoutMillis;
+  private final Map<String, Deque<IdleConnection>> idleConnections = new HashMap<>();
+  private final Map<String, Integer> borrowedCounts = new HashMap<>();
+  private ScheduledExecutorService evictionExecutor;
+
+  SnowflakeConnectionPool(int maxIdlePerKey, int maxBorrowedPerKey, long idleTimeoutMillis,
+                          long borrowTimeoutMillis) {
+    this.maxIdlePerKey = maxIdlePerKey;
+    this.maxBorrowedPerKey = maxBorrowedPerKey;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+  }
+
+  public static SnowflakeConnectionPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns an idle connection for the key, or opens a new one if there is none. Waits for a connection to be
+   * returned, if the maximum number of connections is borrowed for the key.
+   *
+   * @param key identifies the configuration the connection is opened with.
+   * @param factory opens a new connection for the key.
+   * @return connection, which is returned to the pool on close.
+   * @throws SQLException thrown if a new connection cannot be opened or none is returned in time.
+   */
+  public Connection getConnection(String key, ConnectionFactory factory) throws SQLException {
+    return getConnection(key, factory, true);
+  }
+
+  /**
+   * Returns an idle connection for the key, or opens a new one if there is none, without counting it against
+   * the maximum number of borrowed connections. Meant for stage file uploads and downloads, which hold their
+   * connection until the file is transferred.
+   *
+   * @param key identifies the configuration the connection is opened with.
+   * @param factory opens a new connection for the key.
+   * @return connection, which is returned to the pool on close.
+   * @throws SQLException thrown if a new connection cannot be opened.
+   */
+  public Connection getTransferConnection(String key, ConnectionFactory factory) throws SQLException {
+    return getConnection(key, factory, false);
+  }
+
+  private Connection getConnection(String key, ConnectionFactory factory, boolean bounded) throws SQLException {
+    if (bounded) {
+      acquire(key);
+    }
+    try {
+      Connection connection;
+      while ((connection = pollIdle(key)) != null) {
+        if (!connection.isClosed()) {
+          return pooled(key, connection, bounded);
+        }
+      }
+      return pooled(key, factory.open(), bounded);
+    } catch (SQLException | RuntimeException e) {
+      if (bounded) {
+        returnBorrowed(key);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Closes all idle connections.
+   */
+  public void clear() {
+    Map<String, Deque<IdleConnection>> evicted;
+    synchronized (this) {
+      evicted = new HashMap<>(idleConnections);
+      idleConnections.clear();
+    }
+    evicted.values().forEach(connections -> connections.forEach(idle -> closeQuietly(idle.connection)));
+  }
+
+  private synchronized void acquire(String key) throws SQLException {
+    long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+    int borrowed;
+    while ((borrowed = borrowedCounts.getOrDefault(key, 0)) >= maxBorrowedPerKey) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new SQLException(String.format("Timed out waiting for one of %d Snowflake connections in use",
+                                             maxBorrowedPerKey));
+      }
+      try {
+        wait(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for a Snowflake connection", e);
+      }
+    }
+    borrowedCounts.put(key, borrowed + 1);
+  }
+
+  private synchronized void returnBorrowed(String key) {
+    int borrowed = borrowedCounts.get(key) - 1;
+    if (borrowed == 0) {
+      borrowedCounts.remove(key);
+    } else {
+      borrowedCounts.put(key, borrowed);
+    }
+    notifyAll();
+  }
+
+  private synchronized Connection pollIdle(String key) {
+    Deque<IdleConnection> connections = idleConnections.get(key);
+    if (connections == null || connections.isEmpty()) {
+      return null;
+    }
+    // most recently used first, so that rarely needed connections expire
+    return connections.pollFirst().connection;
+  }
+
+  private void release(String key, Connection connection, boolean bounded) {
+    boolean pooled = false;
+    try {
+      if (!connection.isClosed()) {
+        pooled = offerIdle(key, connection);
+      }
+    } catch (SQLException e) {
+      LOG.debug("Failed to check state of Snowflake connection, it will be closed", e);
+    } finally {
+      if (bounded) {
+        returnBorrowed(key);
+      }
+    }
+    if (!pooled) {
+      closeQuietly(connection);
+    }
+  }
+
+  private synchronized boolean offerIdle(String key, Connection connection) {
+    Deque<IdleConnection> connections = idleConnections.computeIfAbsent(key, k -> new ArrayDeque<>());
+    if (connections.size() >= maxIdlePerKey) {
+      return false;
+    }
+    connections.addFirst(new IdleConnection(connection, System.currentTimeMillis()));
+    startEviction();
+    return true;
+  }
+
+  private void startEviction() {
+    if (evictionExecutor != null) {
+      return;
+    }
+    evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "snowflake-connection-eviction");
+      thread.setDaemon(true);
+      return thread;
+    });
+    evictionExecutor.scheduleWithFixedDelay(this::evictExpired, EVICTION_INTERVAL_SECONDS,
+                                            EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(this::clear, "snowflake-connection-pool-shutdown"));
+  }
+
+  void evictExpired() {
+    long expiredBefore = System.currentTimeMillis() - idleTimeoutMillis;
+    Deque<Connection> evicted = new ArrayDeque<>();
+    synchronized (this) {
+      for (Iterator<Deque<IdleConnection>> keys = idleConnections.values().iterator(); keys.hasNext(); ) {
+        Deque<IdleConnection> connections = keys.next();
+        // connections are ordered from the most recently used, so expired ones are at the tail
+        while (!connections.isEmpty() && connections.peekLast().idleSince < expiredBefore) {
+          evicted.add(connections.pollLast().connection);
+        }
+        if (connections.isEmpty()) {
+          keys.remove();
+        }
+      }
+    }
+    evicted.forEach(SnowflakeConnectionPool::closeQuietly);
+  }
+
+  synchronized int getIdleCount(String key) {
+    Deque<IdleConnection> connections = idleConnections.get(key);
+    return connections == null ? 0 : connections.size();
+  }
+
+  private Connection pooled(String key, Connection connection, boolean bounded) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                                               new PooledConnectionHandler(key, connection, bounded));
+  }
+
+  private static void closeQuietly(Connection connection) {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      LOG.debug("Failed to close Snowflake connection", e);
+    }
+  }
+
+  /**
+   * Opens a new physical connection.
+   */
+  public interface ConnectionFactory {
+    Connection open() throws SQLException;
+  }
+
+  private static class IdleConnection {
+    private final Connection connection;
+    private final long idleSince;
+
+    private IdleConnection(Connection connection, long idleSince) {
+      this.connection = connection;
+      this.idleSince = idleSince;
+    }
+  }
+
+  /**
+   * Delegates all calls to the physical connection, except for close, which returns it to the pool.
+   */
+  private class PooledConnectionHandler implements InvocationHandler {
+    private final String key;
+    private final Connection connection;
+    // whether the connection counts against the maximum number of borrowed connections
+    private final boolean bounded;
+    private boolean released;
+
+    private PooledConnectionHandler(String key, Connection connection, boolean bounded) {
+      this.key = key;
+      this.connection = connection;
+      this.bounded = bounded;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!released) {
+            released = true;
+            release(key, connection, bounded);
+          }
+          return null;
+        case "isClosed":
+          return released || connection.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          if (released) {
+            throw new SQLException("Connection is closed");
+          }
+          try {
+            return method.invoke(connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+  }
+}
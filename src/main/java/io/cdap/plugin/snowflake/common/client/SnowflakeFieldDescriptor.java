@@ -20,19 +20,27 @@ import java.util.Objects;
 
 /**
  * Contains information about field.
- * Can contain field name, type and nullable flag.
+ * Can contain field name, type, nullable flag, and precision and scale of numeric fields.
  */
 public class SnowflakeFieldDescriptor {
 
   private String name;
   private Integer type;
   private Boolean nullable;
+  private int precision;
+  private int scale;
 
   public SnowflakeFieldDescriptor(String name, Integer type,
                                   Boolean nullable) {
+    this(name, type, nullable, 0, 0);
+  }
+
+  public SnowflakeFieldDescriptor(String name, Integer type, Boolean nullable, int precision, int scale) {
     this.name = name;
     this.type = type;
     this.nullable = nullable;
+    this.precision = precision;
+    this.scale = scale;
   }
 
   public String getName() {
@@ -47,6 +55,17 @@ public class SnowflakeFieldDescriptor {
     return nullable;
   }
 
+  /**
+   * Returns precision of a numeric field, or 0 if the field is not numeric.
+   */
+  public int getPrecision() {
+    return precision;
+  }
+
+  public int getScale() {
+    return scale;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -58,11 +77,13 @@ public class SnowflakeFieldDescriptor {
     SnowflakeFieldDescriptor that = (SnowflakeFieldDescriptor) o;
     return Objects.equals(name, that.name) &&
       Objects.equals(type, that.type) &&
-      Objects.equals(nullable, that.nullable);
+      Objects.equals(nullable, that.nullable) &&
+      precision == that.precision &&
+      scale == that.scale;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(name, type, nullable);
+    return Objects.hash(name, type, nullable, precision, scale);
   }
 }
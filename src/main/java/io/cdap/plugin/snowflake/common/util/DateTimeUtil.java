@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.util;
+
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses dates, times and timestamps in the fixed formats Snowflake unloads them in, directly into
+ * epoch days and microseconds. Nothing is allocated unless the value is invalid.
+ * <ul>
+ *   <li>date: {@code YYYY-MM-DD}</li>
+ *   <li>time: {@code HH24:MI:SS} with an optional fraction of second</li>
+ *   <li>timestamp: {@code YYYY-MM-DD"T"HH24:MI:SS} with an optional fraction of second,
+ *   followed by {@code TZH:TZM} or {@code Z}</li>
+ * </ul>
+ */
+public class DateTimeUtil {
+
+  private static final long MICROS_PER_SECOND = 1000000L;
+  private static final long MICROS_PER_DAY = 86400L * MICROS_PER_SECOND;
+  private static final int DAYS_0000_TO_1970 = 719528;
+  // length of "-MM-DD" after the year
+  private static final int MONTH_DAY_LENGTH = 6;
+  // length of "HH:MI:SS"
+  private static final int TIME_LENGTH = 8;
+
+  private DateTimeUtil() {
+  }
+
+  /**
+   * Parses {@code YYYY-MM-DD} into the number of days since epoch.
+   */
+  public static int parseEpochDay(CharSequence value) {
+    int dateEnd = parseYearEnd(value, "date") + MONTH_DAY_LENGTH;
+    if (dateEnd != value.length()) {
+      throw error("date", value, Math.min(dateEnd, value.length()));
+    }
+    return Math.toIntExact(parseEpochDay(value, dateEnd, "date"));
+  }
+
+  /**
+   * Parses {@code HH24:MI:SS[.FFFFFF]} into microseconds of the day.
+   */
+  public static long parseTimeMicros(CharSequence value) {
+    int timeEnd = parseTimeEnd(value, 0, "time");
+    if (timeEnd != value.length()) {
+      throw error("time", value, timeEnd);
+    }
+    return parseTimeMicros(value, 0, timeEnd, "time");
+  }
+
+  /**
+   * Parses {@code YYYY-MM-DD"T"HH24:MI:SS[.FFFFFF]TZH:TZM} into microseconds since epoch.
+   */
+  public static long parseTimestampMicros(CharSequence value) {
+    int dateEnd = parseYearEnd(value, "timestamp") + MONTH_DAY_LENGTH;
+    if (dateEnd >= value.length() || value.charAt(dateEnd) != 'T') {
+      throw error("timestamp", value, Math.min(dateEnd, value.length()));
+    }
+    long epochDay = parseEpochDay(value, dateEnd, "timestamp");
+    int timeStart = dateEnd + 1;
+    int timeEnd = parseTimeEnd(value, timeStart, "timestamp");
+    long timeMicros = parseTimeMicros(value, timeStart, timeEnd, "timestamp");
+    long offsetSeconds = parseOffsetSeconds(value, timeEnd);
+    return epochDay * MICROS_PER_DAY + timeMicros - offsetSeconds * MICROS_PER_SECOND;
+  }
+
+  // returns index of the '-' which ends the year, the year may be signed and longer than 4 digits
+  private static int parseYearEnd(CharSequence value, String type) {
+    int index = value.length() > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+    int digitsStart = index;
+    while (index < value.length() && isDigit(value.charAt(index))) {
+      index++;
+    }
+    if (index - digitsStart < 4 || index >= value.length() || value.charAt(index) != '-') {
+      throw error(type, value, index);
+    }
+    return index;
+  }
+
+  private static long parseEpochDay(CharSequence value, int dateEnd, String type) {
+    int yearEnd = dateEnd - MONTH_DAY_LENGTH;
+    boolean negative = value.charAt(0) == '-';
+    long year = parseNumber(value, negative || value.charAt(0) == '+' ? 1 : 0, yearEnd, type);
+    if (negative) {
+      year = -year;
+    }
+    if (value.charAt(yearEnd + 3) != '-') {
+      throw error(type, value, yearEnd + 3);
+    }
+    int month = (int) parseNumber(value, yearEnd + 1, yearEnd + 3, type);
+    int day = (int) parseNumber(value, yearEnd + 4, dateEnd, type);
+    if (month < 1 || month > 12) {
+      throw error(type, value, yearEnd + 1);
+    }
+    if (day < 1 || day > lengthOfMonth(year, month)) {
+      throw error(type, value, yearEnd + 4);
+    }
+    return toEpochDay(year, month, day);
+  }
+
+  // returns index after the optional fraction of second
+  private static int parseTimeEnd(CharSequence value, int start, String type) {
+    int index = start + TIME_LENGTH;
+    if (index > value.length()) {
+      throw error(type, value, value.length());
+    }
+    if (index < value.length() && value.charAt(index) == '.') {
+      index++;
+      int fractionStart = index;
+      while (index < value.length() && isDigit(value.charAt(index))) {
+        index++;
+      }
+      if (index == fractionStart) {
+        throw error(type, value, index);
+      }
+    }
+    return index;
+  }
+
+  private static long parseTimeMicros(CharSequence value, int start, int end, String type) {
+    if (value.charAt(start + 2) != ':' || value.charAt(start + 5) != ':') {
+      throw error(type, value, value.charAt(start + 2) != ':' ? start + 2 : start + 5);
+    }
+    int hour = (int) parseNumber(value, start, start + 2, type);
+    int minute = (int) parseNumber(value, start + 3, start + 5, type);
+    int second = (int) parseNumber(value, start + 6, start + 8, type);
+    if (hour > 23 || minute > 59 || second > 59) {
+      throw error(type, value, start);
+    }
+
+    long micros = 0;
+    int fractionStart = start + TIME_LENGTH + 1;
+    // digits beyond microseconds are truncated
+    for (int i = 0; i < 6; i++) {
+      int index = fractionStart + i;
+      micros = micros * 10 + (index < end ? value.charAt(index) - '0' : 0);
+    }
+    return ((hour * 60L + minute) * 60L + second) * MICROS_PER_SECOND + micros;
+  }
+
+  private static long parseOffsetSeconds(CharSequence value, int start) {
+    int length = value.length() - start;
+    if (length == 1 && value.charAt(start) == 'Z') {
+      return 0;
+    }
+    char sign = length == 6 ? value.charAt(start) : 0;
+    if ((sign != '+' && sign != '-') || value.charAt(start + 3) != ':') {
+      throw error("timestamp", value, start);
+    }
+    int hours = (int) parseNumber(value, start + 1, start + 3, "timestamp");
+    int minutes = (int) parseNumber(value, start + 4, start + 6, "timestamp");
+    if (hours > 18 || minutes > 59) {
+      throw error("timestamp", value, start);
+    }
+    long seconds = hours * 3600L + minutes * 60L;
+    return sign == '-' ? -seconds : seconds;
+  }
+
+  private static long parseNumber(CharSequence value, int start, int end, String type) {
+    long result = 0;
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (!isDigit(c)) {
+        throw error(type, value, i);
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isLeapYear(long year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  private static int lengthOfMonth(long year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  // same algorithm as LocalDate.toEpochDay()
+  private static long toEpochDay(long year, int month, int day) {
+    long total = 365 * year;
+    if (year >= 0) {
+      total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+    } else {
+      total -= year / -4 - year / -100 + year / -400;
+    }
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!isLeapYear(year)) {
+        total--;
+      }
+    }
+    return total - DAYS_0000_TO_1970;
+  }
+
+  private static DateTimeParseException error(String type, CharSequence value, int index) {
+    return new DateTimeParseException(String.format("Text '%s' could not be parsed as %s at index %d",
+                                                    value, type, index), value, index);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts decimal text into the unscaled two's complement bytes CDAP uses for decimal values.
+ * Values with at most 18 digits are parsed into a long, so no {@link BigDecimal} or
+ * {@link java.math.BigInteger} is created for them.
+ */
+public class DecimalUtil {
+
+  // any number of up to 18 digits fits into a long
+  private static final int MAX_LONG_DIGITS = 18;
+  private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private DecimalUtil() {
+  }
+
+  /**
+   * Returns the same bytes as {@code new BigDecimal(value).setScale(scale).unscaledValue().toByteArray()}.
+   *
+   * @param value decimal number, optionally signed and with a fraction.
+   * @param scale scale of the resulting value.
+   * @return unscaled value of the decimal as big-endian two's complement bytes.
+   * @throws NumberFormatException if the value is not a number.
+   * @throws ArithmeticException if the value has more fraction digits than the scale, which are not zeros.
+   */
+  public static byte[] toUnscaledBytes(CharSequence value, int scale) {
+    int length = value.length();
+    int index = 0;
+    boolean negative = false;
+    if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+      negative = value.charAt(0) == '-';
+      index++;
+    }
+
+    long unscaled = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    boolean hasDigits = false;
+    for (; index < length; index++) {
+      char c = value.charAt(index);
+      if (c >= '0' && c <= '9') {
+        hasDigits = true;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+        // leading zeros don't count towards the digits
+        if (unscaled != 0 || c != '0') {
+          if (++digits > MAX_LONG_DIGITS) {
+            return toUnscaledBytesSlow(value, scale);
+          }
+        }
+        unscaled = unscaled * 10 + (c - '0');
+      } else if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        // exponent or invalid value
+        return toUnscaledBytesSlow(value, scale);
+      }
+    }
+    if (!hasDigits) {
+      return toUnscaledBytesSlow(value, scale);
+    }
+
+    fractionDigits = Math.max(fractionDigits, 0);
+    if (fractionDigits > scale) {
+      int dropped = fractionDigits - scale;
+      if (dropped > MAX_LONG_DIGITS || unscaled % POWERS_OF_TEN[dropped] != 0) {
+        // let BigDecimal decide, it fails if rounding is necessary
+        return toUnscaledBytesSlow(value, scale);
+      }
+      unscaled /= POWERS_OF_TEN[dropped];
+    } else if (fractionDigits < scale) {
+      int added = scale - fractionDigits;
+      if (added + digits > MAX_LONG_DIGITS) {
+        return toUnscaledBytesSlow(value, scale);
+      }
+      unscaled *= POWERS_OF_TEN[added];
+    }
+    return toByteArray(negative ? -unscaled : unscaled);
+  }
+
+  /**
+   * Returns the same bytes as {@code BigInteger.valueOf(value).toByteArray()}.
+   */
+  public static byte[] toByteArray(long value) {
+    int bitLength = 64 - Long.numberOfLeadingZeros(value < 0 ? ~value : value);
+    int byteLength = bitLength / 8 + 1;
+    byte[] bytes = new byte[byteLength];
+    for (int i = byteLength - 1; i >= 0; i--) {
+      bytes[i] = (byte) value;
+      value >>= 8;
+    }
+    return bytes;
+  }
+
+  private static byte[] toUnscaledBytesSlow(CharSequence value, int scale) {
+    return new BigDecimal(value.toString()).setScale(scale).unscaledValue().toByteArray();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.util;
+
+import com.google.common.base.Strings;
+import io.cdap.plugin.snowflake.actions.loadunload.EnumWithValue;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * Parses the values of config properties backed by an {@link EnumWithValue}.
+ * Invalid values are reported by the validation of the config, so getters fall back to the default for them.
+ */
+public class EnumUtil {
+
+  private EnumUtil() {
+  }
+
+  /**
+   * Returns the constant whose value matches the string, ignoring case.
+   *
+   * @param enumClass class of the enum.
+   * @param stringValue value of the property, as configured.
+   * @param defaultValue constant returned for an empty or unsupported value.
+   * @return matching constant, or the default one.
+   */
+  public static <T extends Enum<T> & EnumWithValue> T getEnumValue(Class<T> enumClass, @Nullable String stringValue,
+                                                                  T defaultValue) {
+    return findEnumValue(enumClass, stringValue).orElse(defaultValue);
+  }
+
+  /**
+   * Returns whether the string is empty, which selects the default constant, or matches a constant of the enum.
+   *
+   * @param enumClass class of the enum.
+   * @param stringValue value of the property, as configured.
+   * @return true if the value is supported.
+   */
+  public static <T extends Enum<T> & EnumWithValue> boolean isValidEnumValue(Class<T> enumClass,
+                                                                            @Nullable String stringValue) {
+    return Strings.isNullOrEmpty(stringValue) || findEnumValue(enumClass, stringValue).isPresent();
+  }
+
+  private static <T extends Enum<T> & EnumWithValue> Optional<T> findEnumValue(Class<T> enumClass,
+                                                                              @Nullable String stringValue) {
+    if (Strings.isNullOrEmpty(stringValue)) {
+      return Optional.empty();
+    }
+    return Stream.of(enumClass.getEnumConstants())
+      .filter(constant -> constant.getValue().equalsIgnoreCase(stringValue))
+      .findAny();
+  }
+}
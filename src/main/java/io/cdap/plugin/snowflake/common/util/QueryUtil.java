@@ -16,15 +16,17 @@
 
 package io.cdap.plugin.snowflake.common.util;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
 /**
  * Transforms import query.
  */
 public class QueryUtil {
 
-  // Matches "limit <number>". Also "limit $$$$" and "limit ''" which means unlimited in Snowflake.
-  private static final String LIMIT_PATTERN = "(?i)LIMIT (NULL|''|\\$\\$\\$\\$|\\d+)";
-  private static final String LIMIT_STRING = "limit %s";
-
   private QueryUtil() {
   }
 
@@ -35,13 +37,101 @@ public class QueryUtil {
     return importQuery;
   }
 
-  public static String limitQuery(String importQuery, int limit) {
-    importQuery = removeSemicolon(importQuery);
+  /**
+   * Wraps import query, so that only the given columns of its result are selected.
+   * Column names are quoted, so they are matched case-sensitively, the same way as the schema fields.
+   */
+  public static String projectQuery(String importQuery, List<String> columns) {
+    String selectList = columns.stream()
+      .map(QueryUtil::quoteIdentifier)
+      .collect(Collectors.joining(", "));
+    return String.format("SELECT %s FROM (%s)", selectList, removeSemicolon(importQuery));
+  }
+
+  /**
+   * Returns a query, which selects the minimum and the maximum value of the column in the import query result,
+   * rounded down and up to integers, so that ranges between them include fractional values too.
+   */
+  public static String boundsQuery(String importQuery, String column) {
+    String quotedColumn = quoteIdentifier(column);
+    return String.format("SELECT FLOOR(MIN(%s)), CEIL(MAX(%s)) FROM (%s)", quotedColumn, quotedColumn,
+                         removeSemicolon(importQuery));
+  }
+
+  /**
+   * Splits import query into queries over adjacent ranges of a numeric column, which together select all the rows.
+   * Rows with null in the column are selected by the first query. If the range has fewer values than the requested
+   * number of queries, one query per value is returned.
+   */
+  public static List<String> rangeQueries(String importQuery, String column, BigInteger min, BigInteger max,
+                                         int count) {
+    String quotedColumn = quoteIdentifier(column);
+    String query = removeSemicolon(importQuery);
+    BigInteger lower = min;
+    BigInteger size = max.subtract(lower).add(BigInteger.ONE);
+    BigInteger parts = size.min(BigInteger.valueOf(count));
+
+    List<String> queries = new ArrayList<>();
+    for (int i = 0; i < parts.intValue(); i++) {
+      // upper bound is exclusive, the one of the last range is max + 1
+      BigInteger from = lower.add(size.multiply(BigInteger.valueOf(i)).divide(parts));
+      BigInteger to = lower.add(size.multiply(BigInteger.valueOf(i + 1)).divide(parts));
+      String condition = String.format("%s >= %s AND %s < %s", quotedColumn, from, quotedColumn, to);
+      if (i == 0) {
+        condition = String.format("(%s) OR %s IS NULL", condition, quotedColumn);
+      }
+      queries.add(String.format("SELECT * FROM (%s) WHERE %s", query, condition));
+    }
+    return queries;
+  }
+
+  /**
+   * Returns a query, which selects the maximum value of the column in the import query result.
+   */
+  public static String maxQuery(String importQuery, String column) {
+    return String.format("SELECT MAX(%s) FROM (%s)", quoteIdentifier(column), removeSemicolon(importQuery));
+  }
 
-    String limitString = String.format(LIMIT_STRING, limit);
-    if (importQuery.toLowerCase().contains("limit")) {
-      return importQuery.replaceAll(LIMIT_PATTERN, limitString);
+  /**
+   * Narrows import query to the rows with the column value above the lower bound and up to the upper bound.
+   * Bounds are passed as string literals, which Snowflake casts to the column type.
+   */
+  public static String watermarkQuery(String importQuery, String column, @Nullable String lowerBound,
+                                      @Nullable String upperBound) {
+    String quotedColumn = quoteIdentifier(column);
+    List<String> conditions = new ArrayList<>();
+    if (lowerBound != null) {
+      conditions.add(String.format("%s > %s", quotedColumn, quoteLiteral(lowerBound)));
     }
-    return String.format("%s %s", importQuery, limitString);
+    if (upperBound != null) {
+      conditions.add(String.format("%s <= %s", quotedColumn, quoteLiteral(upperBound)));
+    }
+    if (conditions.isEmpty()) {
+      return importQuery;
+    }
+    return String.format("SELECT * FROM (%s) WHERE %s", removeSemicolon(importQuery),
+                         String.join(" AND ", conditions));
+  }
+
+  /**
+   * Wraps import query, so that no rows are selected, while the columns of its result stay the same.
+   */
+  public static String emptyQuery(String importQuery) {
+    return String.format("SELECT * FROM (%s) WHERE FALSE", removeSemicolon(importQuery));
+  }
+
+  /**
+   * Returns a query, which reads the persisted result of an already executed query.
+   */
+  public static String resultScanQuery(String queryId) {
+    return String.format("SELECT * FROM TABLE(RESULT_SCAN(%s))", quoteLiteral(queryId));
+  }
+
+  private static String quoteLiteral(String value) {
+    return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+  }
+
+  private static String quoteIdentifier(String identifier) {
+    return "\"" + identifier.replace("\"", "\"\"") + "\"";
   }
 }
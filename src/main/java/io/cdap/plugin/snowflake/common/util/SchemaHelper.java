@@ -63,16 +63,23 @@ public class SchemaHelper {
     }
 
     SnowflakeSourceAccessor snowflakeSourceAccessor = new SnowflakeSourceAccessor(config);
-    return getSchema(snowflakeSourceAccessor, config.getSchema(), collector, config.getImportQuery());
+    return getSchema(snowflakeSourceAccessor, config.getSchema(), collector, config.getImportQuery(),
+                     config.getNativeNumberTypes());
   }
 
   public static Schema getSchema(SnowflakeSourceAccessor snowflakeAccessor, String schema,
                                  FailureCollector collector, String importQuery) {
+    return getSchema(snowflakeAccessor, schema, collector, importQuery, false);
+  }
+
+  public static Schema getSchema(SnowflakeSourceAccessor snowflakeAccessor, String schema,
+                                 FailureCollector collector, String importQuery, boolean nativeNumberTypes) {
     try {
       if (!Strings.isNullOrEmpty(schema)) {
         return getParsedSchema(schema);
       }
-      return Strings.isNullOrEmpty(importQuery) ? null : getSchema(snowflakeAccessor, importQuery);
+      return Strings.isNullOrEmpty(importQuery) ? null
+        : getSchema(snowflakeAccessor, importQuery, nativeNumberTypes);
     } catch (SchemaParseException e) {
       collector.addFailure(String.format("Unable to retrieve output schema. Reason: '%s'", e.getMessage()),
                            null)
@@ -94,10 +101,24 @@ public class SchemaHelper {
   }
 
   public static Schema getSchema(SnowflakeAccessor snowflakeAccessor, String importQuery) {
+    return getSchema(snowflakeAccessor, importQuery, false);
+  }
+
+  /**
+   * Resolves schema of the import query from Snowflake metadata.
+   *
+   * @param snowflakeAccessor accessor used to describe the query.
+   * @param importQuery query to describe.
+   * @param nativeNumberTypes if true, NUMBER columns are mapped by their precision and scale.
+   * @return schema of the query result.
+   */
+  public static Schema getSchema(SnowflakeAccessor snowflakeAccessor, String importQuery,
+                                 boolean nativeNumberTypes) {
     try {
       List<SnowflakeFieldDescriptor> result = snowflakeAccessor.describeQuery(importQuery);
       List<Schema.Field> fields = result.stream()
-        .map(fieldDescriptor -> Schema.Field.of(fieldDescriptor.getName(), getSchema(fieldDescriptor)))
+        .map(fieldDescriptor -> Schema.Field.of(fieldDescriptor.getName(),
+                                                getSchema(fieldDescriptor, nativeNumberTypes)))
         .collect(Collectors.toList());
       return Schema.recordOf("data", fields);
     } catch (IOException e) {
@@ -105,9 +126,11 @@ public class SchemaHelper {
     }
   }
 
-  private static Schema getSchema(SnowflakeFieldDescriptor fieldDescriptor) {
+  private static Schema getSchema(SnowflakeFieldDescriptor fieldDescriptor, boolean nativeNumberTypes) {
     Integer type = fieldDescriptor.getType();
-    Schema schema = SNOWFLAKE_TYPE_TO_CDAP_SCHEMA.get(type);
+    Schema schema = nativeNumberTypes && fieldDescriptor.getPrecision() > 0
+      ? getNumberSchema(fieldDescriptor)
+      : SNOWFLAKE_TYPE_TO_CDAP_SCHEMA.get(type);
     if (schema == null) {
       throw new SchemaParseException(String.format(
         "No corresponding Schema is found for java.sql.Type: %d", type));
@@ -117,6 +140,22 @@ public class SchemaHelper {
       : schema;
   }
 
+  /**
+   * Maps NUMBER(p, 0) to int if p is up to 9 and to long if p is up to 18, all the other numbers are mapped
+   * to decimals of the same precision and scale.
+   */
+  private static Schema getNumberSchema(SnowflakeFieldDescriptor fieldDescriptor) {
+    int precision = fieldDescriptor.getPrecision();
+    int scale = fieldDescriptor.getScale();
+    if (scale == 0 && precision <= 9) {
+      return Schema.of(Schema.Type.INT);
+    }
+    if (scale == 0 && precision <= 18) {
+      return Schema.of(Schema.Type.LONG);
+    }
+    return Schema.decimalOf(precision, scale);
+  }
+
   /**
    * Works like {@link SchemaHelper#checkCompatibility(Schema, Schema, boolean)}
    * except that checking nullable is always on.
@@ -15,55 +15,159 @@
  */
 package io.cdap.plugin.snowflake.sink.batch;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
-
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
 
 /**
- * A buffer which the {@link CSVRecord} is written to before it gets sent to Snowflake.
+ * A buffer which the records are written to before they get sent to Snowflake.
+ * Records are encoded as UTF-8 directly into a growable byte array, using the quoting rules of the default
+ * format of commons-csv: values are enclosed in quotes only if they contain a delimiter, a quote or a line break,
+ * or start or end with a character, which could be misread otherwise.
+ * A record is written value by value between {@link #startRecord(List)} and {@link #endRecord()}.
  */
 public class CSVBuffer implements Closeable {
-  private static final CSVFormat csvFormat = CSVFormat.DEFAULT
-    .withAllowMissingColumnNames(false);
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  private static final byte DELIMITER = ',';
+  private static final byte QUOTE = '"';
+  private static final byte[] RECORD_SEPARATOR = {'\r', '\n'};
+  private static final byte[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+    'A', 'B', 'C', 'D', 'E', 'F'};
 
-  private CSVPrinter csvPrinter;
-  private ByteArrayOutputStream csvStream;
+  private final boolean printHeader;
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+  private int size;
+  private int headerSize;
+  private int lastRecordOffset;
   private boolean isHeaderPrinted;
-  private boolean printHeader;
   private int recordsCount = 0;
 
-  public CSVBuffer(boolean printHeader) throws IOException {
+  public CSVBuffer(boolean printHeader) {
     this.printHeader = printHeader;
-    this.csvStream = new ByteArrayOutputStream();
     reset();
   }
 
-  public void write(CSVRecord csvRecord) throws IOException {
+  /**
+   * Starts a new record. The header is printed before it, if the file does not have one yet.
+   *
+   * @param columnNames column names printed as the header
+   */
+  public void startRecord(List<String> columnNames) {
     if (!isHeaderPrinted) {
-      csvPrinter.printRecord(csvRecord.getColumnNames());
+      for (int i = 0; i < columnNames.size(); i++) {
+        if (i > 0) {
+          writeDelimiter();
+        }
+        writeValue(columnNames.get(i), i == 0);
+      }
+      writeRecordSeparator();
+      headerSize = size;
       isHeaderPrinted = true;
     }
-    csvPrinter.printRecord(csvRecord);
-    // unless we flush data from OutputStreamWriter to ByteArrayOutputStream we won't be able to calculate size.
-    csvPrinter.flush();
+    lastRecordOffset = size;
+  }
+
+  public void endRecord() {
+    writeRecordSeparator();
     recordsCount++;
   }
 
-  public void reset() throws IOException {
+  public void writeDelimiter() {
+    writeByte(DELIMITER);
+  }
+
+  /**
+   * Writes a value of the current record, quoting it if needed.
+   *
+   * @param value value to write, null is written as nothing, which Snowflake loads as NULL
+   * @param firstInRecord whether the value is the first one in the record
+   */
+  public void writeValue(@Nullable String value, boolean firstInRecord) {
+    if (value == null) {
+      return;
+    }
+    if (!needsQuotes(value, firstInRecord)) {
+      writeChars(value, false);
+      return;
+    }
+    writeByte(QUOTE);
+    writeChars(value, true);
+    writeByte(QUOTE);
+  }
+
+  /**
+   * Writes the decimal digits of the number, which never need quotes, without creating a string.
+   */
+  public void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      // cannot be negated
+      writeChars(Long.toString(value), false);
+      return;
+    }
+    // a sign and at most 19 digits
+    ensureCapacity(20);
+    if (value < 0) {
+      buffer[size++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long rest = value / 10; rest != 0; rest /= 10) {
+      digits++;
+    }
+    size += digits;
+    int position = size;
+    do {
+      buffer[--position] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+  }
+
+  /**
+   * Writes the bytes as upper case hex digits, which Snowflake loads into BINARY columns.
+   */
+  public void writeHex(byte[] bytes, int offset, int length) {
+    ensureCapacity(length * 2);
+    for (int i = offset; i < offset + length; i++) {
+      buffer[size++] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+      buffer[size++] = HEX_DIGITS[bytes[i] & 0x0F];
+    }
+  }
+
+  public void reset() {
     isHeaderPrinted = !printHeader;
     recordsCount = 0;
-    csvStream.reset();
-    // we need to re-create this or else OutputStreamWriter will not able to write after reset.
-    csvPrinter = new CSVPrinter(new OutputStreamWriter(csvStream, StandardCharsets.UTF_8), csvFormat);
+    size = 0;
+    headerSize = 0;
+    lastRecordOffset = 0;
+  }
+
+  /**
+   * Moves the last written record into the target buffer, which is reset first. The header is copied along with it.
+   * Used to start a new file with the record, which did not fit into the file of this buffer.
+   */
+  public void moveLastRecord(CSVBuffer target) {
+    int lastRecordSize = size - lastRecordOffset;
+    target.reset();
+    target.ensureCapacity(headerSize + lastRecordSize);
+    System.arraycopy(buffer, 0, target.buffer, 0, headerSize);
+    System.arraycopy(buffer, lastRecordOffset, target.buffer, headerSize, lastRecordSize);
+    target.size = headerSize + lastRecordSize;
+    target.headerSize = headerSize;
+    target.lastRecordOffset = headerSize;
+    target.isHeaderPrinted = isHeaderPrinted;
+    target.recordsCount = 1;
+
+    size = lastRecordOffset;
+    recordsCount--;
   }
 
   public int size() {
-    return csvStream.size();
+    return size;
   }
 
   public int getRecordsCount() {
@@ -71,10 +175,106 @@ public class CSVBuffer implements Closeable {
   }
 
   public byte[] getByteArray() {
-    return csvStream.toByteArray();
+    return Arrays.copyOf(buffer, size);
   }
 
-  public void close() throws IOException {
-    csvPrinter.close(true);
+  /**
+   * Returns a stream of the first bytes of the buffer, without copying them.
+   * The stream is valid until the buffer is written to or reset.
+   */
+  public InputStream getInputStream(int length) {
+    return new ByteArrayInputStream(buffer, 0, length);
+  }
+
+  /**
+   * Writes the buffered bytes to the stream and empties the buffer. Unlike {@link #reset()} the header is not
+   * printed again and the records count is kept, as the following records belong to the same file.
+   */
+  public void flushTo(OutputStream outputStream) throws IOException {
+    outputStream.write(buffer, 0, size);
+    size = 0;
+    headerSize = 0;
+    lastRecordOffset = 0;
+  }
+
+  public void close() {
+    // nothing to release, the buffer is garbage collected
+  }
+
+  private void writeRecordSeparator() {
+    ensureCapacity(RECORD_SEPARATOR.length);
+    System.arraycopy(RECORD_SEPARATOR, 0, buffer, size, RECORD_SEPARATOR.length);
+    size += RECORD_SEPARATOR.length;
+  }
+
+  /**
+   * Same as QuoteMode.MINIMAL of commons-csv.
+   */
+  private static boolean needsQuotes(String value, boolean firstInRecord) {
+    int length = value.length();
+    if (length == 0) {
+      // an empty first value is quoted, as a record with a single empty value would be an empty line otherwise
+      return firstInRecord;
+    }
+    char first = value.charAt(0);
+    if (first <= '#') {
+      return true;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c == '\n' || c == '\r' || c == '"' || c == ',') {
+        return true;
+      }
+    }
+    return value.charAt(length - 1) <= ' ';
+  }
+
+  /**
+   * Encodes the characters as UTF-8, doubling the quotes if the value is quoted.
+   */
+  private void writeChars(String value, boolean quoted) {
+    int length = value.length();
+    // a character takes at most 3 bytes, a surrogate pair 4 bytes for 2 characters, a doubled quote 2 bytes
+    ensureCapacity(length * 3);
+    byte[] bytes = buffer;
+    int position = size;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        if (c == '"' && quoted) {
+          bytes[position++] = QUOTE;
+        }
+        bytes[position++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[position++] = (byte) (0xC0 | (c >> 6));
+        bytes[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+        bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate is replaced the same way as by String.getBytes
+        bytes[position++] = '?';
+      } else {
+        bytes[position++] = (byte) (0xE0 | (c >> 12));
+        bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        bytes[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    size = position;
+  }
+
+  private void writeByte(byte b) {
+    ensureCapacity(1);
+    buffer[size++] = b;
+  }
+
+  private void ensureCapacity(int extra) {
+    int required = size + extra;
+    if (required > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+    }
   }
 }
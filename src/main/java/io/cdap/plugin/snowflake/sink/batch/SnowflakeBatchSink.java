@@ -26,7 +26,6 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageConfigurer;
-import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
 import io.cdap.plugin.common.LineageRecorder;
@@ -34,7 +33,6 @@ import org.apache.hadoop.io.NullWritable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.stream.Collectors;
 
 /**
@@ -43,13 +41,12 @@ import java.util.stream.Collectors;
 @Plugin(type = BatchSink.PLUGIN_TYPE)
 @Name(SnowflakeBatchSink.PLUGIN_NAME)
 @Description("Writes records to Snowflake")
-public class SnowflakeBatchSink extends BatchSink<StructuredRecord, NullWritable, CSVRecord> {
+public class SnowflakeBatchSink extends BatchSink<StructuredRecord, NullWritable, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(SnowflakeBatchSink.class);
 
   public static final String PLUGIN_NAME = "Snowflake";
 
   private final SnowflakeSinkConfig config;
-  private StructuredRecordToCSVRecordTransformer transformer;
 
   public SnowflakeBatchSink(SnowflakeSinkConfig config) {
     this.config = config;
@@ -84,15 +81,8 @@ public class SnowflakeBatchSink extends BatchSink<StructuredRecord, NullWritable
   }
 
   @Override
-  public void initialize(BatchRuntimeContext context) throws Exception {
-    super.initialize(context);
-    this.transformer = new StructuredRecordToCSVRecordTransformer();
-  }
-
-  @Override
-  public void transform(StructuredRecord record, Emitter<KeyValue<NullWritable, CSVRecord>> emitter)
-    throws IOException {
-    CSVRecord csvRecord = transformer.transform(record);
-    emitter.emit(new KeyValue<>(null, csvRecord));
+  public void transform(StructuredRecord record, Emitter<KeyValue<NullWritable, StructuredRecord>> emitter) {
+    // records are encoded into the stage files by the record writers
+    emitter.emit(new KeyValue<>(null, record));
   }
 }
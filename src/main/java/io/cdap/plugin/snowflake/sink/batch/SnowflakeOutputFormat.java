@@ -17,6 +17,7 @@ package io.cdap.plugin.snowflake.sink.batch;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.cdap.cdap.api.data.format.StructuredRecord;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -34,7 +35,7 @@ import java.util.UUID;
  * An OutputFormat that sends the output of a Hadoop job to the Snowflake record writer, also
  * it defines the output committer.
  */
-public class SnowflakeOutputFormat extends OutputFormat<NullWritable, CSVRecord> {
+public class SnowflakeOutputFormat extends OutputFormat<NullWritable, StructuredRecord> {
 
   private static final Logger LOG = LoggerFactory.getLogger(SnowflakeOutputFormat.class);
   private static final Gson GSON = new Gson();
@@ -43,7 +44,7 @@ public class SnowflakeOutputFormat extends OutputFormat<NullWritable, CSVRecord>
   public static final String DESTINATION_STAGE_PATH_PROPERTY = "cdap.dest.stage.path";
 
   @Override
-  public RecordWriter<NullWritable, CSVRecord> getRecordWriter(TaskAttemptContext taskAttemptContext)
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext taskAttemptContext)
     throws IOException {
       return new SnowflakeRecordWriter(taskAttemptContext);
   }
@@ -29,6 +29,7 @@ public class SnowflakeOutputFormatProvider implements OutputFormatProvider {
   private static final Gson GSON = new Gson();
 
   private final Map<String, String> configMap;
+  private final StageFileFormat fileFormat;
 
   /**
    * Gets properties from config and stores them as properties in map for Mapreduce.
@@ -39,10 +40,14 @@ public class SnowflakeOutputFormatProvider implements OutputFormatProvider {
     this.configMap = new ImmutableMap.Builder<String, String>()
       .put(PROPERTY_CONFIG_JSON, GSON.toJson(config))
       .build();
+    this.fileFormat = config.getFileFormat();
   }
 
   @Override
   public String getOutputFormatClassName() {
+    if (fileFormat == StageFileFormat.PARQUET) {
+      return SnowflakeParquetOutputFormat.class.getName();
+    }
     return SnowflakeOutputFormat.class.getName();
   }
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.snowflake.sink.batch;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * An OutputFormat that sends the output of a Hadoop job to the Snowflake Parquet record writer.
+ * Uses the output committer of {@link SnowflakeOutputFormat}, which copies the staged files into the table.
+ */
+public class SnowflakeParquetOutputFormat extends OutputFormat<NullWritable, StructuredRecord> {
+
+  @Override
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext taskAttemptContext) {
+    return new SnowflakeParquetRecordWriter(taskAttemptContext);
+  }
+
+  @Override
+  public void checkOutputSpecs(JobContext jobContext) {
+    //no-op
+  }
+
+  @Override
+  public OutputCommitter getOutputCommitter(TaskAttemptContext taskAttemptContext) {
+    return new SnowflakeOutputFormat().getOutputCommitter(taskAttemptContext);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.snowflake.sink.batch;
+
+import com.google.gson.Gson;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes records into Parquet files and submits them to Snowflake.
+ * Accepts <code>null</code> as a key, and StructuredRecord as a value.
+ * Parquet writes its footer after all the data, so each file is written to a local temporary file,
+ * which is uploaded once it reaches the maximum file size.
+ */
+public class SnowflakeParquetRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+  private static final Gson GSON = new Gson();
+
+  private final Configuration conf;
+  private final SnowflakeSinkConfig config;
+  private final SnowflakeSinkAccessor snowflakeAccessor;
+  private final String destinationStagePath;
+  // transformers compiled per input schema, the one of the previous record is checked first
+  private final Map<Schema, StructuredRecordToGroupTransformer> transformers = new HashMap<>();
+  private Schema transformerSchema;
+  private StructuredRecordToGroupTransformer transformer;
+  private java.nio.file.Path localFile;
+  private ParquetWriter<Group> parquetWriter;
+
+  public SnowflakeParquetRecordWriter(TaskAttemptContext taskAttemptContext) {
+    conf = taskAttemptContext.getConfiguration();
+    destinationStagePath = conf.get(SnowflakeOutputFormat.DESTINATION_STAGE_PATH_PROPERTY);
+    String configJson = conf.get(SnowflakeOutputFormatProvider.PROPERTY_CONFIG_JSON);
+    config = GSON.fromJson(configJson, SnowflakeSinkConfig.class);
+    snowflakeAccessor = new SnowflakeSinkAccessor(config);
+  }
+
+  @Override
+  public void write(NullWritable key, StructuredRecord record) throws IOException {
+    Schema schema = record.getSchema();
+    if (schema != transformerSchema) {
+      StructuredRecordToGroupTransformer recordTransformer =
+        transformers.computeIfAbsent(schema, StructuredRecordToGroupTransformer::new);
+      // a file has a single Parquet schema, so records of another schema start a new file
+      if (recordTransformer != transformer) {
+        submitCurrentFile();
+      }
+      transformer = recordTransformer;
+      transformerSchema = schema;
+    }
+    if (parquetWriter == null) {
+      openFile();
+    }
+    parquetWriter.write(transformer.transform(record));
+
+    // the size includes the buffered row group, so the uploaded file is usually smaller
+    if (config.getMaxFileSize() > 0 && parquetWriter.getDataSize() >= config.getMaxFileSize()) {
+      submitCurrentFile();
+    }
+  }
+
+  private void openFile() throws IOException {
+    localFile = Files.createTempFile("cdap_snowflake", ".parquet");
+    parquetWriter = ExampleParquetWriter.builder(new Path(localFile.toUri()))
+      .withConf(conf)
+      .withType(transformer.getParquetSchema())
+      .withCompressionCodec(CompressionCodecName.SNAPPY)
+      .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+      .build();
+  }
+
+  private void submitCurrentFile() throws IOException {
+    if (localFile == null) {
+      return;
+    }
+    try {
+      ParquetWriter<Group> completedWriter = parquetWriter;
+      parquetWriter = null;
+      completedWriter.close();
+      try (InputStream fileInputStream = Files.newInputStream(localFile)) {
+        snowflakeAccessor.uploadParquetStream(fileInputStream, destinationStagePath);
+      }
+    } finally {
+      Files.deleteIfExists(localFile);
+      // checksum written next to the file by the local Hadoop file system
+      Files.deleteIfExists(localFile.resolveSibling("." + localFile.getFileName() + ".crc"));
+      localFile = null;
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext taskAttemptContext) throws IOException {
+    submitCurrentFile();
+  }
+}
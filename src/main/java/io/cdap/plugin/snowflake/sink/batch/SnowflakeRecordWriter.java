@@ -16,6 +16,8 @@
 package io.cdap.plugin.snowflake.sink.batch;
 
 import com.google.gson.Gson;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.RecordWriter;
@@ -23,61 +25,195 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Writes csv records into batches and submits them to Snowflake.
- * Accepts <code>null</code> as a key, and CSVRecord as a value.
+ * Accepts <code>null</code> as a key, and StructuredRecord as a value, which is encoded straight into the buffer.
+ * With streaming upload, a file is passed to the driver while it is written and is completed once it reaches the
+ * maximum file size, otherwise the whole file is buffered and uploaded when the next record does not fit into it.
+ * The driver buffers a streamed file itself, spilling it to a local temporary file beyond 128 MB, and uploads it
+ * once it is complete.
+ * Completed files are uploaded in the background, while the next file is written. Writing waits for the oldest
+ * upload once the configured number of uploads is in flight.
  */
-public class SnowflakeRecordWriter extends RecordWriter<NullWritable, CSVRecord> {
+public class SnowflakeRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(SnowflakeRecordWriter.class);
   private static final Gson GSON = new Gson();
+  private static final int STREAMING_CHUNK_SIZE = 1024 * 1024;
+  private static final int STREAMING_CHUNK_COUNT = 4;
 
-  private final CSVBuffer csvBuffer;
-  private final CSVBuffer csvBufferSizeCheck;
   private final SnowflakeSinkConfig config;
   private final SnowflakeSinkAccessor snowflakeAccessor;
   private final String destinationStagePath;
+  private final boolean streamingUpload;
+  private final int maxConcurrentUploads;
+  private final ExecutorService uploadExecutor;
+  // uploads of completed files, oldest first
+  private final Deque<Future<?>> pendingUploads = new ArrayDeque<>();
+  // buffers of uploaded files, reused for the next files
+  private final Queue<CSVBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+  private CSVBuffer csvBuffer;
+  // encoders compiled per input schema, the one of the previous record is checked first
+  private final Map<Schema, StructuredRecordCSVEncoder> encoders = new HashMap<>();
+  private Schema encoderSchema;
+  private StructuredRecordCSVEncoder encoder;
+  private StreamingUploadOutputStream uploadStream;
+  // bytes of the current file already passed to the upload stream
+  private long streamedSize;
 
   public SnowflakeRecordWriter(TaskAttemptContext taskAttemptContext) throws IOException {
-    Configuration conf = taskAttemptContext.getConfiguration();
-    destinationStagePath = conf.get(SnowflakeOutputFormat.DESTINATION_STAGE_PATH_PROPERTY);
-    String configJson = conf.get(
-      SnowflakeOutputFormatProvider.PROPERTY_CONFIG_JSON);
-    config = GSON.fromJson(
-      configJson, SnowflakeSinkConfig.class);
+    this(getConfig(taskAttemptContext.getConfiguration()),
+         taskAttemptContext.getConfiguration().get(SnowflakeOutputFormat.DESTINATION_STAGE_PATH_PROPERTY));
+  }
+
+  private SnowflakeRecordWriter(SnowflakeSinkConfig config, String destinationStagePath) {
+    this(config, new SnowflakeSinkAccessor(config), destinationStagePath);
+  }
 
+  SnowflakeRecordWriter(SnowflakeSinkConfig config, SnowflakeSinkAccessor snowflakeAccessor,
+                        String destinationStagePath) {
+    this.config = config;
+    this.snowflakeAccessor = snowflakeAccessor;
+    this.destinationStagePath = destinationStagePath;
     csvBuffer = new CSVBuffer(true);
-    csvBufferSizeCheck = new CSVBuffer(false);
-    snowflakeAccessor = new SnowflakeSinkAccessor(config);
+    streamingUpload = config.getStreamingUpload();
+    maxConcurrentUploads = config.getMaxConcurrentUploads();
+    // a streamed file keeps a thread busy while it is written, in addition to the completed files
+    int threadCount = streamingUpload ? maxConcurrentUploads + 1 : maxConcurrentUploads;
+    uploadExecutor = Executors.newFixedThreadPool(threadCount, runnable -> {
+      Thread thread = new Thread(runnable, "snowflake-stage-upload");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static SnowflakeSinkConfig getConfig(Configuration conf) {
+    String configJson = conf.get(SnowflakeOutputFormatProvider.PROPERTY_CONFIG_JSON);
+    return GSON.fromJson(configJson, SnowflakeSinkConfig.class);
   }
 
   @Override
-  public void write(NullWritable key, CSVRecord csvRecord) throws IOException {
-    csvBufferSizeCheck.reset();
-    csvBufferSizeCheck.write(csvRecord);
+  public void write(NullWritable key, StructuredRecord record) throws IOException {
+    Schema schema = record.getSchema();
+    if (schema != encoderSchema) {
+      encoder = encoders.computeIfAbsent(schema, StructuredRecordCSVEncoder::new);
+      encoderSchema = schema;
+    }
+    // the record is encoded once, the file size is checked with the record already in the buffer
+    encoder.encode(record, csvBuffer);
 
-    if (config.getMaxFileSize() > 0 && csvBuffer.size() + csvBufferSizeCheck.size() > config.getMaxFileSize()) {
-      submitCurrentBatch();
+    if (streamingUpload) {
+      long fileSize = streamedSize + csvBuffer.size();
+      if (csvBuffer.size() >= STREAMING_CHUNK_SIZE) {
+        streamBuffer();
+      }
+      // streamed bytes cannot be taken back, so the file is completed once it reaches the maximum size
+      if (config.getMaxFileSize() > 0 && fileSize >= config.getMaxFileSize()) {
+        submitCurrentBatch();
+      }
+      return;
     }
 
-    csvBuffer.write(csvRecord);
+    if (config.getMaxFileSize() > 0 && csvBuffer.size() > config.getMaxFileSize()
+      && csvBuffer.getRecordsCount() > 1) {
+      // the file is submitted without the record, which did not fit into it, the record starts the next file
+      awaitUploadSlot();
+      CSVBuffer nextBuffer = takeFreeBuffer();
+      csvBuffer.moveLastRecord(nextBuffer);
+      submitBuffer(csvBuffer);
+      csvBuffer = nextBuffer;
+    }
   }
 
   private void submitCurrentBatch() throws IOException {
-    if (csvBuffer.getRecordsCount() != 0) {
-      try (InputStream csvInputStream = new ByteArrayInputStream(csvBuffer.getByteArray())) {
+    if (csvBuffer.getRecordsCount() == 0) {
+      return;
+    }
+    awaitUploadSlot();
+    if (streamingUpload) {
+      streamBuffer();
+      pendingUploads.add(uploadStream.finish());
+      uploadStream = null;
+      streamedSize = 0;
+      csvBuffer.reset();
+    } else {
+      submitBuffer(csvBuffer);
+      csvBuffer = takeFreeBuffer();
+    }
+  }
+
+  private void streamBuffer() throws IOException {
+    if (uploadStream == null) {
+      uploadStream = new StreamingUploadOutputStream(snowflakeAccessor, destinationStagePath, uploadExecutor,
+                                                     STREAMING_CHUNK_COUNT);
+    }
+    streamedSize += csvBuffer.size();
+    csvBuffer.flushTo(uploadStream);
+  }
+
+  private void submitBuffer(CSVBuffer buffer) {
+    pendingUploads.add(uploadExecutor.submit(() -> {
+      try (InputStream csvInputStream = buffer.getInputStream(buffer.size())) {
         snowflakeAccessor.uploadStream(csvInputStream, destinationStagePath);
       }
+      freeBuffers.add(buffer);
+      return null;
+    }));
+  }
 
-      csvBuffer.reset();
+  private CSVBuffer takeFreeBuffer() {
+    CSVBuffer buffer = freeBuffers.poll();
+    if (buffer == null) {
+      return new CSVBuffer(true);
+    }
+    buffer.reset();
+    return buffer;
+  }
+
+  /**
+   * Waits until fewer uploads than the limit are in flight, failures of finished uploads are thrown early.
+   */
+  private void awaitUploadSlot() throws IOException {
+    while (!pendingUploads.isEmpty()
+      && (pendingUploads.size() >= maxConcurrentUploads || pendingUploads.peek().isDone())) {
+      waitForUpload(pendingUploads.poll());
+    }
+  }
+
+  private void waitForUpload(Future<?> upload) throws IOException {
+    try {
+      upload.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the upload");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to upload file to stage", e.getCause());
     }
   }
 
   @Override
   public void close(TaskAttemptContext taskAttemptContext) throws IOException {
-    submitCurrentBatch();
+    try {
+      submitCurrentBatch();
+      while (!pendingUploads.isEmpty()) {
+        waitForUpload(pendingUploads.poll());
+      }
+    } finally {
+      // uploads still running after a failure are cancelled, the task fails anyway
+      uploadExecutor.shutdownNow();
+    }
   }
 }
@@ -36,8 +36,13 @@ public class SnowflakeSinkAccessor extends SnowflakeAccessor {
     "TYPE='CSV' " +
     "FIELD_OPTIONALLY_ENCLOSED_BY='\"' " +
     "SKIP_HEADER = 1) %s";
+  // Parquet columns are matched to the table columns by name instead of position
+  private static final String POPULATE_TABLE_STAGE_PARQUET = "COPY INTO %s FROM %s " +
+    "FILE_FORMAT=(TYPE='PARQUET') " +
+    "MATCH_BY_COLUMN_NAME = CASE_INSENSITIVE %s";
 
   private static final String DEST_FILE_NAME = "cdapRecords_%s.csv";
+  private static final String PARQUET_DEST_FILE_NAME = "cdapRecords_%s.parquet";
   private final SnowflakeSinkConfig config;
 
   public SnowflakeSinkAccessor(SnowflakeSinkConfig config) {
@@ -46,21 +51,33 @@ public class SnowflakeSinkAccessor extends SnowflakeAccessor {
   }
 
   public void uploadStream(InputStream inputStream, String stageDir) throws IOException {
+    uploadStream(inputStream, stageDir, DEST_FILE_NAME, true);
+  }
+
+  public void uploadParquetStream(InputStream inputStream, String stageDir) throws IOException {
+    // Parquet pages are already compressed
+    uploadStream(inputStream, stageDir, PARQUET_DEST_FILE_NAME, false);
+  }
+
+  private void uploadStream(InputStream inputStream, String stageDir, String fileNameFormat,
+                            boolean compress) throws IOException {
     // file name needs to be unique across all the nodes.
-    String filename = String.format(DEST_FILE_NAME, UUID.randomUUID().toString());
+    String filename = String.format(fileNameFormat, UUID.randomUUID().toString());
     LOG.info("Uploading file '{}' to table stage", filename);
 
-    try (Connection connection = dataSource.getConnection()) {
+    try (Connection connection = getTransferConnection()) {
       connection.unwrap(SnowflakeConnection.class).uploadStream(stageDir,
                                                                 null,
-                                                                inputStream, filename, true);
+                                                                inputStream, filename, compress);
     } catch (SQLException e) {
       throw new IOException(e);
     }
   }
 
   public void populateTable(String destinationStagePath) throws IOException {
-    String populateStatement = String.format(POPULATE_TABLE_STAGE, config.getTableName(),
+    String populateTableStage = config.getFileFormat() == StageFileFormat.PARQUET
+      ? POPULATE_TABLE_STAGE_PARQUET : POPULATE_TABLE_STAGE;
+    String populateStatement = String.format(populateTableStage, config.getTableName(),
                                              destinationStagePath, config.getCopyOptions());
     runSQL(populateStatement);
   }
@@ -22,6 +22,7 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.snowflake.common.BaseSnowflakeConfig;
 import io.cdap.plugin.snowflake.common.client.SnowflakeAccessor;
+import io.cdap.plugin.snowflake.common.util.EnumUtil;
 import io.cdap.plugin.snowflake.common.util.SchemaHelper;
 
 import javax.annotation.Nullable;
@@ -34,8 +35,11 @@ public class SnowflakeSinkConfig extends BaseSnowflakeConfig {
   public static final String PROPERTY_TABLE_NAME = "tableName";
   public static final String PROPERTY_MAX_FILE_SIZE = "maxFileSize";
   public static final String PROPERTY_COPY_OPTIONS = "copyOptions";
+  public static final String PROPERTY_STREAMING_UPLOAD = "streamingUpload";
+  public static final String PROPERTY_MAX_CONCURRENT_UPLOADS = "maxConcurrentUploads";
+  public static final String PROPERTY_FILE_FORMAT = "fileFormat";
 
-  private static final String GET_FIELDS_QUERY = "SELECT * FROM %s"; // runs with a limit
+  private static final String GET_FIELDS_QUERY = "SELECT * FROM %s"; // only described, not executed
 
   @Name(PROPERTY_REFERENCE_NAME)
   @Description("This will be used to uniquely identify this source/sink for lineage, annotating metadata, etc.")
@@ -57,6 +61,27 @@ public class SnowflakeSinkConfig extends BaseSnowflakeConfig {
   @Nullable
   private String copyOptions;
 
+  @Name(PROPERTY_STREAMING_UPLOAD)
+  @Description("If true, records are passed to the Snowflake driver while they are written instead of being " +
+    "buffered by the plugin, which allows files larger than 2 GB. The driver keeps up to 128 MB of each file " +
+    "in memory and the rest in a local temporary file, and uploads the file once it is complete.")
+  @Macro
+  @Nullable
+  private Boolean streamingUpload;
+
+  @Name(PROPERTY_MAX_CONCURRENT_UPLOADS)
+  @Description("Maximum number of completed files of a task uploaded in the background, while the task keeps " +
+    "writing records. Writing waits for an upload to finish once the limit is reached.")
+  @Macro
+  @Nullable
+  private Integer maxConcurrentUploads;
+
+  @Name(PROPERTY_FILE_FORMAT)
+  @Description("Format of the files records are written into, before they are copied into the table.")
+  @Macro
+  @Nullable
+  private String fileFormat;
+
   public SnowflakeSinkConfig(String referenceName, String accountName, String database,
                              String schemaName, String username, String password,
                              @Nullable Boolean keyPairEnabled, @Nullable String path,
@@ -80,6 +105,18 @@ public class SnowflakeSinkConfig extends BaseSnowflakeConfig {
     return referenceName;
   }
 
+  public boolean getStreamingUpload() {
+    return streamingUpload != null && streamingUpload;
+  }
+
+  public int getMaxConcurrentUploads() {
+    return maxConcurrentUploads == null ? 1 : maxConcurrentUploads;
+  }
+
+  public StageFileFormat getFileFormat() {
+    return EnumUtil.getEnumValue(StageFileFormat.class, fileFormat, StageFileFormat.CSV);
+  }
+
   public String getCopyOptions() {
     String copyOptions = (this.copyOptions == null) ? "" : this.copyOptions;
     return copyOptions.replace(",", " ").replace(":", "=");
@@ -87,9 +124,37 @@ public class SnowflakeSinkConfig extends BaseSnowflakeConfig {
 
   public void validate(Schema inputSchema, FailureCollector failureCollector) {
     super.validate(failureCollector);
+    if (!containsMacro(PROPERTY_MAX_CONCURRENT_UPLOADS) && getMaxConcurrentUploads() < 1) {
+      failureCollector.addFailure("Maximum concurrent uploads must be positive.", null)
+        .withConfigProperty(PROPERTY_MAX_CONCURRENT_UPLOADS);
+    }
+    if (!containsMacro(PROPERTY_FILE_FORMAT)) {
+      if (!EnumUtil.isValidEnumValue(StageFileFormat.class, fileFormat)) {
+        failureCollector.addFailure(String.format("Unsupported value for '%s': '%s'", PROPERTY_FILE_FORMAT,
+                                                  fileFormat), null)
+          .withConfigProperty(PROPERTY_FILE_FORMAT);
+      } else if (getFileFormat() == StageFileFormat.PARQUET) {
+        validateParquetSchema(inputSchema, failureCollector);
+      }
+    }
     validateInputSchema(inputSchema, failureCollector);
   }
 
+  private void validateParquetSchema(@Nullable Schema schema, FailureCollector failureCollector) {
+    if (schema == null || schema.getFields() == null) {
+      return;
+    }
+    for (Schema.Field field : schema.getFields()) {
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      if (!StructuredRecordToGroupTransformer.isSupported(fieldSchema)) {
+        failureCollector.addFailure(
+          String.format("Field '%s' of type '%s' cannot be written to Parquet.", field.getName(),
+                        fieldSchema.getDisplayName()), "Use the CSV file format.")
+          .withConfigProperty(PROPERTY_FILE_FORMAT).withInputSchemaField(field.getName());
+      }
+    }
+  }
+
   /**
    * Checks that input schema is correct. Which means:
    * 1. All fields in it are present in table
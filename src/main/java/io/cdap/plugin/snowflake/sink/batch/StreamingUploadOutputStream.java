@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.sink.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream of a stage file, which is handed to the driver while it is written.
+ * Written bytes are passed in chunks through a bounded queue to a background thread running the upload,
+ * so that the writer holds only a few chunks of the file. The driver still reads the whole stream before
+ * sending it, keeping up to 128 MB of it in memory and the rest in a local temporary file, so the network
+ * upload starts only once the file is complete.
+ * Closing the stream completes the file and waits until the upload finishes, {@link #finish()} completes the file
+ * without waiting.
+ */
+public class StreamingUploadOutputStream extends OutputStream {
+
+  private static final byte[] END = new byte[0];
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+  private final BlockingQueue<byte[]> chunks;
+  private final Future<?> upload;
+  private boolean closed;
+
+  /**
+   * Starts the upload of a new file on the given executor.
+   *
+   * @param snowflakeAccessor accessor used to upload the file.
+   * @param stagePath directory in stage to upload the file to.
+   * @param executor executor to run the upload on.
+   * @param chunkCount number of written chunks, which may wait for the upload.
+   */
+  public StreamingUploadOutputStream(SnowflakeSinkAccessor snowflakeAccessor, String stagePath,
+                                     ExecutorService executor, int chunkCount) {
+    this.chunks = new ArrayBlockingQueue<>(chunkCount);
+    this.upload = executor.submit(() -> {
+      snowflakeAccessor.uploadStream(new ChunkInputStream(), stagePath);
+      return null;
+    });
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream is closed");
+    }
+    if (len > 0) {
+      // the caller may reuse its buffer, so the bytes are copied
+      put(Arrays.copyOfRange(b, off, off + len));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    finish();
+    waitForUpload();
+  }
+
+  /**
+   * Completes the file without waiting for the upload to finish.
+   *
+   * @return future of the upload, failed if the upload fails.
+   * @throws IOException thrown if the upload already failed.
+   */
+  public Future<?> finish() throws IOException {
+    if (!closed) {
+      closed = true;
+      put(END);
+    }
+    return upload;
+  }
+
+  private void put(byte[] chunk) throws IOException {
+    try {
+      while (!chunks.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        // the upload stops reading if it failed
+        if (upload.isDone()) {
+          waitForUpload();
+          throw new IOException("Upload finished before the file was completely written");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      upload.cancel(true);
+      throw new InterruptedIOException("Interrupted while waiting for the upload");
+    }
+  }
+
+  private void waitForUpload() throws IOException {
+    try {
+      upload.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      upload.cancel(true);
+      throw new InterruptedIOException("Interrupted while waiting for the upload");
+    } catch (ExecutionException e) {
+      // a new exception each time, as both write and close may report the same failure
+      throw new IOException("Failed to upload file to stage", e.getCause());
+    }
+  }
+
+  /**
+   * Stream read by the upload, returns the written chunks until the writer closes the file.
+   */
+  private class ChunkInputStream extends InputStream {
+    private byte[] chunk;
+    private int position;
+
+    @Override
+    public int read() throws IOException {
+      if (!nextChunk()) {
+        return -1;
+      }
+      return chunk[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!nextChunk()) {
+        return -1;
+      }
+      int count = Math.min(len, chunk.length - position);
+      System.arraycopy(chunk, position, b, off, count);
+      position += count;
+      return count;
+    }
+
+    private boolean nextChunk() throws IOException {
+      while (chunk == null || position == chunk.length) {
+        if (chunk == END) {
+          return false;
+        }
+        try {
+          chunk = chunks.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for written data");
+        }
+        position = 0;
+      }
+      return true;
+    }
+  }
+}
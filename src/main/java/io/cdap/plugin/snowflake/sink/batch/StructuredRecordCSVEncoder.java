@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.snowflake.sink.batch;
+
+import com.google.gson.JsonParser;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes a {@link StructuredRecord} into a {@link CSVBuffer} in the format, which can be read by Snowflake.
+ * How each field is written is resolved once for the schema, so values are appended to the buffer
+ * without intermediate records or per value type checks.
+ */
+public class StructuredRecordCSVEncoder {
+  private final List<String> columnNames;
+  private final String[] fieldNames;
+  private final FieldWriter[] writers;
+
+  public StructuredRecordCSVEncoder(Schema schema) {
+    List<Schema.Field> fields = schema.getFields();
+    List<String> names = new ArrayList<>(fields.size());
+    fieldNames = new String[fields.size()];
+    writers = new FieldWriter[fields.size()];
+    for (int i = 0; i < fieldNames.length; i++) {
+      Schema.Field field = fields.get(i);
+      names.add(field.getName());
+      fieldNames[i] = field.getName();
+      writers[i] = compileWriter(field);
+    }
+    columnNames = Collections.unmodifiableList(names);
+  }
+
+  public void encode(StructuredRecord record, CSVBuffer csvBuffer) throws IOException {
+    csvBuffer.startRecord(columnNames);
+    for (int i = 0; i < fieldNames.length; i++) {
+      if (i > 0) {
+        csvBuffer.writeDelimiter();
+      }
+      Object value = record.get(fieldNames[i]);
+      // null is written as nothing, which Snowflake loads as NULL
+      if (value != null) {
+        writers[i].write(csvBuffer, record, value, i == 0);
+      }
+    }
+    csvBuffer.endRecord();
+  }
+
+  /**
+   * Resolves how values of a field are written. Dates, times and timestamps are written in ISO 8601 format,
+   * bytes as hex, records and arrays as JSON, so that they can be saved to Snowflake's variant.
+   */
+  private static FieldWriter compileWriter(Schema.Field field) {
+    String fieldName = field.getName();
+    Schema fieldSchema = field.getSchema();
+    if (fieldSchema.isNullable()) {
+      fieldSchema = fieldSchema.getNonNullable();
+    }
+
+    Schema.LogicalType logicalType = fieldSchema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return (buffer, record, value, first) ->
+            buffer.writeValue(LocalDate.ofEpochDay((Integer) value).toString(), first);
+        case TIMESTAMP_MICROS:
+          return (buffer, record, value, first) ->
+            buffer.writeValue(Instant.ofEpochMilli(TimeUnit.MICROSECONDS.toMillis((Long) value)).toString(), first);
+        case TIME_MICROS:
+          return (buffer, record, value, first) ->
+            buffer.writeValue(toLocalTime(TimeUnit.MICROSECONDS.toMillis((Long) value)), first);
+        case TIMESTAMP_MILLIS:
+          return (buffer, record, value, first) ->
+            buffer.writeValue(Instant.ofEpochMilli((Long) value).toString(), first);
+        case TIME_MILLIS:
+          // CDAP keeps milliseconds of a time as int
+          return (buffer, record, value, first) ->
+            buffer.writeValue(toLocalTime(((Number) value).longValue()), first);
+        case DECIMAL:
+          return (buffer, record, value, first) ->
+            buffer.writeValue(record.getDecimal(fieldName).toString(), first);
+        default:
+          String message = String.format("Field '%s' is of unsupported type '%s'", fieldSchema.getDisplayName(),
+                                         logicalType.getToken());
+          return (buffer, record, value, first) -> {
+            throw new IllegalArgumentException(message);
+          };
+      }
+    }
+
+    switch (fieldSchema.getType()) {
+      case INT:
+      case LONG:
+        return (buffer, record, value, first) -> buffer.writeLong(((Number) value).longValue());
+      case RECORD:
+        return (buffer, record, value, first) ->
+          buffer.writeValue(StructuredRecordStringConverter.toJsonString((StructuredRecord) value), first);
+      case ARRAY:
+        // the array is converted as the only field of a record, the same way as it is converted in the whole record
+        Schema wrapperSchema = Schema.recordOf(fieldName + "_wrapper", Schema.Field.of(fieldName, field.getSchema()));
+        return (buffer, record, value, first) -> {
+          StructuredRecord wrapper = StructuredRecord.builder(wrapperSchema).set(fieldName, value).build();
+          String json = StructuredRecordStringConverter.toJsonString(wrapper);
+          buffer.writeValue(new JsonParser().parse(json).getAsJsonObject().get(fieldName).toString(), first);
+        };
+      case BYTES:
+        return (buffer, record, value, first) -> {
+          if (value instanceof ByteBuffer) {
+            ByteBuffer byteBuffer = (ByteBuffer) value;
+            if (byteBuffer.hasArray()) {
+              buffer.writeHex(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+                              byteBuffer.remaining());
+            } else {
+              byte[] bytes = new byte[byteBuffer.remaining()];
+              byteBuffer.duplicate().get(bytes);
+              buffer.writeHex(bytes, 0, bytes.length);
+            }
+          } else {
+            byte[] bytes = (byte[]) value;
+            buffer.writeHex(bytes, 0, bytes.length);
+          }
+        };
+      default:
+        return (buffer, record, value, first) -> buffer.writeValue(value.toString(), first);
+    }
+  }
+
+  private static String toLocalTime(long millis) {
+    // HH:mm:ss.SSS
+    return Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC).toLocalTime().toString();
+  }
+
+  /**
+   * Writes a present value of a field into the buffer.
+   */
+  private interface FieldWriter {
+    void write(CSVBuffer buffer, StructuredRecord record, Object value, boolean first) throws IOException;
+  }
+}
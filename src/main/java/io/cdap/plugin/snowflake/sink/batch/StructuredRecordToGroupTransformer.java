@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.snowflake.sink.batch;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Transforms a {@link StructuredRecord} to a Parquet {@link Group}.
+ * Values keep the representation CDAP uses: epoch days for dates, microseconds or milliseconds for times and
+ * timestamps, unscaled bytes for decimals. How a field is written is resolved once for the schema.
+ */
+public class StructuredRecordToGroupTransformer {
+  private final MessageType parquetSchema;
+  private final SimpleGroupFactory groupFactory;
+  private final String[] fieldNames;
+  private final FieldEncoder[] encoders;
+
+  public StructuredRecordToGroupTransformer(Schema schema) {
+    List<Schema.Field> fields = schema.getFields();
+    fieldNames = new String[fields.size()];
+    encoders = new FieldEncoder[fields.size()];
+    Types.MessageTypeBuilder builder = Types.buildMessage();
+    for (int i = 0; i < fieldNames.length; i++) {
+      Schema.Field field = fields.get(i);
+      Schema fieldSchema = field.getSchema();
+      Type.Repetition repetition = Type.Repetition.REQUIRED;
+      if (fieldSchema.isNullable()) {
+        fieldSchema = fieldSchema.getNonNullable();
+        repetition = Type.Repetition.OPTIONAL;
+      }
+      fieldNames[i] = field.getName();
+      builder.addField(toParquetType(field.getName(), fieldSchema, repetition));
+      encoders[i] = compileEncoder(fieldSchema);
+    }
+    parquetSchema = builder.named("record");
+    groupFactory = new SimpleGroupFactory(parquetSchema);
+  }
+
+  public MessageType getParquetSchema() {
+    return parquetSchema;
+  }
+
+  public Group transform(StructuredRecord record) {
+    Group group = groupFactory.newGroup();
+    for (int i = 0; i < fieldNames.length; i++) {
+      Object value = record.get(fieldNames[i]);
+      // absent values are written as nulls
+      if (value != null) {
+        encoders[i].encode(group, i, value);
+      }
+    }
+    return group;
+  }
+
+  /**
+   * Checks whether values of the given non-nullable schema can be written to Parquet.
+   * Only simple types are supported, records, arrays, maps and unions are not.
+   *
+   * @param schema non-nullable field schema
+   * @return true if the values can be written
+   */
+  public static boolean isSupported(Schema schema) {
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+        case TIMESTAMP_MICROS:
+        case TIMESTAMP_MILLIS:
+        case TIME_MICROS:
+        case TIME_MILLIS:
+        case DECIMAL:
+          return true;
+        default:
+          return false;
+      }
+    }
+    switch (schema.getType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+      case ENUM:
+      case BYTES:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static Type toParquetType(String name, Schema schema, Type.Repetition repetition) {
+    if (!isSupported(schema)) {
+      throw new IllegalArgumentException(
+        String.format("Field '%s' is of unsupported type '%s'", name, schema.getDisplayName()));
+    }
+
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT32, repetition)
+            .as(LogicalTypeAnnotation.dateType()).named(name);
+        case TIMESTAMP_MICROS:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition)
+            .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MICROS)).named(name);
+        case TIMESTAMP_MILLIS:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition)
+            .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named(name);
+        case TIME_MICROS:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition)
+            .as(LogicalTypeAnnotation.timeType(true, LogicalTypeAnnotation.TimeUnit.MICROS)).named(name);
+        case TIME_MILLIS:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT32, repetition)
+            .as(LogicalTypeAnnotation.timeType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named(name);
+        default:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.BINARY, repetition)
+            .as(LogicalTypeAnnotation.decimalType(schema.getScale(), schema.getPrecision())).named(name);
+      }
+    }
+
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.BOOLEAN, repetition).named(name);
+      case INT:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.INT32, repetition).named(name);
+      case LONG:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition).named(name);
+      case FLOAT:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.FLOAT, repetition).named(name);
+      case DOUBLE:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.DOUBLE, repetition).named(name);
+      case BYTES:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.BINARY, repetition).named(name);
+      default:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.BINARY, repetition)
+          .as(LogicalTypeAnnotation.stringType()).named(name);
+    }
+  }
+
+  private static FieldEncoder compileEncoder(Schema schema) {
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == Schema.LogicalType.DECIMAL) {
+      // CDAP keeps decimals as big-endian unscaled bytes, the same as Parquet
+      return StructuredRecordToGroupTransformer::encodeBytes;
+    }
+
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return (group, field, value) -> group.add(field, (Boolean) value);
+      case INT:
+        // also covers dates and times in milliseconds
+        return (group, field, value) -> group.add(field, (Integer) value);
+      case LONG:
+        // also covers timestamps and times in microseconds
+        return (group, field, value) -> group.add(field, (Long) value);
+      case FLOAT:
+        return (group, field, value) -> group.add(field, (Float) value);
+      case DOUBLE:
+        return (group, field, value) -> group.add(field, (Double) value);
+      case BYTES:
+        return StructuredRecordToGroupTransformer::encodeBytes;
+      default:
+        return (group, field, value) -> group.add(field, value.toString());
+    }
+  }
+
+  private static void encodeBytes(Group group, int field, Object value) {
+    if (value instanceof ByteBuffer) {
+      ByteBuffer byteBuffer = ((ByteBuffer) value).duplicate();
+      byte[] bytes = new byte[byteBuffer.remaining()];
+      byteBuffer.get(bytes);
+      group.add(field, Binary.fromConstantByteArray(bytes));
+    } else {
+      group.add(field, Binary.fromConstantByteArray((byte[]) value));
+    }
+  }
+
+  /**
+   * Writes a present value of a field into a Parquet record.
+   */
+  private interface FieldEncoder {
+    void encode(Group group, int field, Object value);
+  }
+}
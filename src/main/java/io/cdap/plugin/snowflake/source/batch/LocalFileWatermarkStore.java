@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import javax.annotation.Nullable;
+
+/**
+ * {@link WatermarkStore} which keeps watermarks in a properties file of the local file system.
+ * Meant for testing and single node setups, as the file is only visible to the host the pipeline is started on.
+ */
+public class LocalFileWatermarkStore implements WatermarkStore {
+
+  private final Path file;
+
+  public LocalFileWatermarkStore(Path file) {
+    this.file = file;
+  }
+
+  @Nullable
+  @Override
+  public synchronized String getWatermark(String key) throws IOException {
+    return load().getProperty(key);
+  }
+
+  @Override
+  public synchronized void putWatermark(String key, String watermark) throws IOException {
+    Properties watermarks = load();
+    watermarks.setProperty(key, watermark);
+
+    Path parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    // written to a temporary file first, so that a failed write does not lose the other watermarks
+    Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream output = Files.newOutputStream(tempFile)) {
+        watermarks.store(output, null);
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private Properties load() throws IOException {
+    Properties watermarks = new Properties();
+    if (Files.exists(file)) {
+      try (InputStream input = Files.newInputStream(file)) {
+        watermarks.load(input);
+      }
+    }
+    return watermarks;
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stream of a decompressed stage file, which is downloaded and decompressed on a background thread.
+ * The background thread fills a bounded ring of chunks ahead of the reader, so that network and decompression
+ * work overlaps with parsing. Once the ring is full the download waits until the reader releases a chunk.
+ */
+public class PrefetchingInputStream extends InputStream {
+
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+  private static final Chunk END = new Chunk(new byte[0], 0, null);
+
+  private final BlockingQueue<byte[]> freeBuffers;
+  private final BlockingQueue<Chunk> filledChunks;
+  private final Future<?> producer;
+  private volatile InputStream source;
+  private volatile long sourceBytes;
+  private volatile boolean closed;
+  private Chunk chunk;
+  private int position;
+
+  /**
+   * Starts prefetching the stream on the given executor.
+   *
+   * @param opener opens the gzip compressed stream, called on the background thread.
+   * @param executor executor to run the download on.
+   * @param chunkSize size of a single chunk in bytes.
+   * @param chunkCount number of chunks which may be read ahead.
+   */
+  public PrefetchingInputStream(Callable<InputStream> opener, ExecutorService executor, int chunkSize,
+                                int chunkCount) {
+    this.freeBuffers = new ArrayBlockingQueue<>(chunkCount);
+    // one more slot for the end or error marker
+    this.filledChunks = new ArrayBlockingQueue<>(chunkCount + 1);
+    for (int i = 0; i < chunkCount; i++) {
+      freeBuffers.add(new byte[chunkSize]);
+    }
+    this.producer = executor.submit(() -> produce(opener));
+  }
+
+  /**
+   * Returns the number of compressed bytes downloaded so far. As the download runs ahead of the reader,
+   * it may exceed the amount consumed by at most the size of the ring.
+   *
+   * @return number of compressed bytes.
+   */
+  public long getSourceBytes() {
+    return sourceBytes;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!nextChunk()) {
+      return -1;
+    }
+    return chunk.data[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextChunk()) {
+      return -1;
+    }
+    int count = Math.min(len, chunk.length - position);
+    System.arraycopy(chunk.data, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    producer.cancel(true);
+    // unblocks a download waiting on the network
+    InputStream stream = source;
+    if (stream != null) {
+      stream.close();
+    }
+  }
+
+  /**
+   * Makes sure the current chunk has unread bytes, taking the next one from the ring if needed.
+   *
+   * @return false if the end of the stream is reached.
+   */
+  private boolean nextChunk() throws IOException {
+    if (closed) {
+      throw new IOException("Stream is closed");
+    }
+    while (chunk == null || position == chunk.length) {
+      if (chunk == END) {
+        return false;
+      }
+      if (chunk != null) {
+        if (chunk.error != null) {
+          throw chunk.error;
+        }
+        freeBuffers.add(chunk.data);
+      }
+      try {
+        chunk = filledChunks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for stage file data");
+      }
+      position = 0;
+    }
+    return true;
+  }
+
+  private void produce(Callable<InputStream> opener) {
+    try {
+      CountingInputStream compressed = new CountingInputStream(opener.call());
+      source = compressed;
+      if (closed) {
+        compressed.close();
+        return;
+      }
+      try (InputStream stream = new GZIPInputStream(compressed, GZIP_BUFFER_SIZE)) {
+        int length;
+        byte[] buffer;
+        do {
+          buffer = freeBuffers.take();
+          length = ByteStreams.read(stream, buffer, 0, buffer.length);
+          sourceBytes = compressed.getCount();
+          if (length > 0) {
+            filledChunks.put(new Chunk(buffer, length, null));
+          } else {
+            freeBuffers.add(buffer);
+          }
+          // a partially filled buffer means the end of the stream
+        } while (length == buffer.length);
+      }
+      filledChunks.put(END);
+    } catch (InterruptedException e) {
+      // closed by the reader
+    } catch (Exception e) {
+      if (!closed) {
+        IOException error = e instanceof IOException ? (IOException) e : new IOException(e);
+        // the queue always has room for the marker
+        filledChunks.offer(new Chunk(new byte[0], 0, error));
+      }
+    }
+  }
+
+  /**
+   * Bytes of a single chunk, or the error the download failed with.
+   */
+  private static class Chunk {
+    private final byte[] data;
+    private final int length;
+    private final IOException error;
+
+    private Chunk(byte[] data, int length, IOException error) {
+      this.data = data;
+      this.length = length;
+      this.error = error;
+    }
+  }
+}
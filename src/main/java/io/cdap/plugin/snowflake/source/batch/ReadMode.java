@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import io.cdap.plugin.snowflake.actions.loadunload.EnumWithValue;
+
+/**
+ * Defines how the batch source reads the result of the import query.
+ */
+public enum ReadMode implements EnumWithValue {
+  /**
+   * Query result is unloaded into stage files with COPY INTO, each file is downloaded by a separate split.
+   */
+  STAGE("Stage"),
+  /**
+   * Query result chunks are fetched directly by the splits, without unloading them into a stage.
+   */
+  RESULT_SET("Result Set");
+
+  private final String value;
+
+  ReadMode(String value) {
+    this.value = value;
+  }
+
+  @Override
+  public String getValue() {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return this.getValue();
+  }
+}
@@ -26,14 +26,18 @@ import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
-import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.api.batch.BatchSourceContext;
 import io.cdap.plugin.common.LineageRecorder;
+import io.cdap.plugin.snowflake.common.util.QueryUtil;
 import io.cdap.plugin.snowflake.common.util.SchemaHelper;
 import org.apache.hadoop.io.NullWritable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -42,12 +46,17 @@ import java.util.stream.Collectors;
 @Plugin(type = BatchSource.PLUGIN_TYPE)
 @Name(SnowflakeBatchSource.NAME)
 @Description("Read data from Snowflake.")
-public class SnowflakeBatchSource extends BatchSource<NullWritable, Map<String, String>, StructuredRecord> {
+public class SnowflakeBatchSource extends BatchSource<NullWritable, StructuredRecord, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(SnowflakeBatchSource.class);
 
   public static final String NAME = "Snowflake";
 
   private final SnowflakeBatchSourceConfig config;
-  private SnowflakeMapToRecordTransformer transformer;
+  private String stagePath;
+  private WatermarkStore watermarkStore;
+  private String watermarkKey;
+  private String lastWatermark;
+  private String newWatermark;
 
   public SnowflakeBatchSource(SnowflakeBatchSourceConfig config) {
     this.config = config;
@@ -65,7 +74,7 @@ public class SnowflakeBatchSource extends BatchSource<NullWritable, Map<String,
   }
 
   @Override
-  public void prepareRun(BatchSourceContext context) {
+  public void prepareRun(BatchSourceContext context) throws IOException {
     FailureCollector failureCollector = context.getFailureCollector();
     config.validate(failureCollector);
 
@@ -81,21 +90,85 @@ public class SnowflakeBatchSource extends BatchSource<NullWritable, Map<String,
                                    .collect(Collectors.toList()));
     }
 
-    context.setInput(Input.of(config.getReferenceName(), new SnowflakeInputFormatProvider(config)));
+    stagePath = SnowflakeSourceAccessor.generateStagePath();
+    String importQuery = getImportQuery(new SnowflakeSourceAccessor(config));
+    context.setInput(Input.of(config.getReferenceName(),
+                              new SnowflakeInputFormatProvider(config, schema, stagePath, importQuery)));
+  }
+
+  /**
+   * Returns the store the watermarks of incremental reads are kept in.
+   * Override to keep them somewhere else than in a local file.
+   */
+  protected WatermarkStore createWatermarkStore() {
+    return new LocalFileWatermarkStore(Paths.get(config.getWatermarkStorePath()));
+  }
+
+  /**
+   * Narrows the import query to the rows above the last committed watermark, if the source reads incrementally.
+   * The upper bound is fixed before reading, so that rows added during the run are read by the next run.
+   * For snapshot reads the query is executed once and replaced by a scan of its persisted result.
+   */
+  String getImportQuery(SnowflakeSourceAccessor snowflakeAccessor) throws IOException {
+    String importQuery = config.getImportQuery();
+    String watermarkColumn = config.getWatermarkColumn();
+    if (watermarkColumn != null) {
+      watermarkStore = createWatermarkStore();
+      watermarkKey = WatermarkStore.getKey(config.getReferenceName(), watermarkColumn, importQuery);
+      lastWatermark = watermarkStore.getWatermark(watermarkKey);
+      importQuery = QueryUtil.watermarkQuery(importQuery, watermarkColumn, lastWatermark, null);
+    }
+
+    if (config.getSnapshotRead()) {
+      String queryId = snowflakeAccessor.executeQuery(importQuery);
+      LOG.info("Reading result of query '{}'", queryId);
+      importQuery = QueryUtil.resultScanQuery(queryId);
+    }
+
+    if (watermarkColumn != null) {
+      newWatermark = snowflakeAccessor.getMaxValue(importQuery, watermarkColumn);
+      if (newWatermark == null) {
+        // without an upper bound rows added during the run would be read, but not covered by a new watermark
+        LOG.info("No values of '{}' above '{}', nothing is read", watermarkColumn, lastWatermark);
+        return QueryUtil.emptyQuery(importQuery);
+      }
+      LOG.info("Reading values of '{}' above '{}' up to '{}'", watermarkColumn, lastWatermark, newWatermark);
+      importQuery = QueryUtil.watermarkQuery(importQuery, watermarkColumn, null, newWatermark);
+    }
+    return importQuery;
   }
 
   @Override
-  public void initialize(BatchRuntimeContext context) throws Exception {
-    super.initialize(context);
-    SnowflakeSourceAccessor snowflakeAccessor = new SnowflakeSourceAccessor(config);
-    Schema schema = SchemaHelper.getSchema(snowflakeAccessor, config.getImportQuery());
-    this.transformer = new SnowflakeMapToRecordTransformer(schema);
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    if (succeeded && newWatermark != null && !Objects.equals(newWatermark, lastWatermark)) {
+      try {
+        watermarkStore.putWatermark(watermarkKey, newWatermark);
+      } catch (IOException e) {
+        // rows of this run are read again by the next one
+        LOG.error("Failed to commit watermark '{}'", newWatermark, e);
+      }
+    }
+    if (config.getReadMode() != ReadMode.STAGE || stagePath == null) {
+      return;
+    }
+    if (config.getKeepStageFiles()) {
+      // every run unloads into a new path, so nothing removes the kept files later
+      LOG.warn("Stage files '{}' are kept, remove them once they are not needed anymore", stagePath);
+      return;
+    }
+    // tasks keep the files they read, so that retried tasks can read them again
+    try {
+      new SnowflakeSourceAccessor(config).removeStage(stagePath);
+    } catch (IOException e) {
+      LOG.warn("Failed to remove stage files '{}'", stagePath, e);
+    }
   }
 
   @Override
-  public void transform(KeyValue<NullWritable, Map<String, String>> input,
+  public void transform(KeyValue<NullWritable, StructuredRecord> input,
                         Emitter<StructuredRecord> emitter) {
-    StructuredRecord record = transformer.transform(input.getValue());
-    emitter.emit(record);
+    // records are converted to the schema resolved in prepareRun by the record reader
+    emitter.emit(input.getValue());
   }
 }
@@ -16,10 +16,14 @@
 
 package io.cdap.plugin.snowflake.source.batch;
 
+import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.snowflake.common.BaseSnowflakeConfig;
+import io.cdap.plugin.snowflake.common.util.EnumUtil;
+
 import javax.annotation.Nullable;
 
 /**
@@ -30,7 +34,17 @@ public class SnowflakeBatchSourceConfig extends BaseSnowflakeConfig {
   public static final String PROPERTY_REFERENCE_NAME = "referenceName";
   public static final String PROPERTY_IMPORT_QUERY = "importQuery";
   public static final String PROPERTY_MAX_SPLIT_SIZE = "maxSplitSize";
+  public static final String PROPERTY_COMBINED_SPLIT_SIZE = "combinedSplitSize";
   public static final String PROPERTY_SCHEMA = "schema";
+  public static final String PROPERTY_READ_MODE = "readMode";
+  public static final String PROPERTY_UNLOAD_FORMAT = "unloadFormat";
+  public static final String PROPERTY_NATIVE_NUMBER_TYPES = "nativeNumberTypes";
+  public static final String PROPERTY_KEEP_STAGE_FILES = "keepStageFiles";
+  public static final String PROPERTY_PARTITION_COLUMN = "partitionColumn";
+  public static final String PROPERTY_NUM_PARTITIONS = "numPartitions";
+  public static final String PROPERTY_WATERMARK_COLUMN = "watermarkColumn";
+  public static final String PROPERTY_WATERMARK_STORE_PATH = "watermarkStorePath";
+  public static final String PROPERTY_SNAPSHOT_READ = "snapshotRead";
 
   @Name(PROPERTY_REFERENCE_NAME)
   @Description("This will be used to uniquely identify this source/sink for lineage, annotating metadata, etc.")
@@ -46,12 +60,80 @@ public class SnowflakeBatchSourceConfig extends BaseSnowflakeConfig {
   @Macro
   private Long maxSplitSize;
 
+  @Name(PROPERTY_COMBINED_SPLIT_SIZE)
+  @Nullable
+  @Description("Target size in bytes of a split combined from several stage files. " +
+    "If not set or 0, each stage file is read by a separate split.")
+  @Macro
+  private Long combinedSplitSize;
+
   @Name(PROPERTY_SCHEMA)
   @Nullable
   @Description("Output schema for the source.")
   @Macro
   private String schema;
 
+  @Name(PROPERTY_READ_MODE)
+  @Nullable
+  @Description("How the query result is read. 'Stage' unloads the result into stage files, " +
+    "'Result Set' fetches the result chunks directly.")
+  @Macro
+  private String readMode;
+
+  @Name(PROPERTY_UNLOAD_FORMAT)
+  @Nullable
+  @Description("Format of the stage files the query result is unloaded into. Used only with 'Stage' read mode.")
+  @Macro
+  private String unloadFormat;
+
+  @Name(PROPERTY_NATIVE_NUMBER_TYPES)
+  @Nullable
+  @Description("If true, NUMBER columns with scale 0 and precision up to 9 or 18 are mapped to int or long, " +
+    "and other NUMBER columns to decimals of their own precision and scale.")
+  @Macro
+  private Boolean nativeNumberTypes;
+
+  @Name(PROPERTY_KEEP_STAGE_FILES)
+  @Nullable
+  @Description("If true, the files unloaded into the stage are not removed when the run finishes, " +
+    "for debugging. Kept files are never read again and have to be removed manually. " +
+    "Used only with 'Stage' read mode.")
+  @Macro
+  private Boolean keepStageFiles;
+
+  @Name(PROPERTY_PARTITION_COLUMN)
+  @Nullable
+  @Description("Numeric column of the query result used to split the unload into ranges, which are unloaded " +
+    "in parallel. Used only with 'Stage' read mode.")
+  @Macro
+  private String partitionColumn;
+
+  @Name(PROPERTY_NUM_PARTITIONS)
+  @Nullable
+  @Description("Number of ranges of the partition column unloaded in parallel.")
+  @Macro
+  private Integer numPartitions;
+
+  @Name(PROPERTY_WATERMARK_COLUMN)
+  @Nullable
+  @Description("Monotonically increasing column of the query result. If set, only rows with a value above " +
+    "the watermark committed by the last successful run are read.")
+  @Macro
+  private String watermarkColumn;
+
+  @Name(PROPERTY_WATERMARK_STORE_PATH)
+  @Nullable
+  @Description("Path of the local file the watermarks are kept in. Required if watermark column is set.")
+  @Macro
+  private String watermarkStorePath;
+
+  @Name(PROPERTY_SNAPSHOT_READ)
+  @Nullable
+  @Description("If true, the import query is executed once when the run starts and all the splits are read from " +
+    "its persisted result, so that split discovery and retries read the same data.")
+  @Macro
+  private Boolean snapshotRead;
+
   public SnowflakeBatchSourceConfig(String referenceName, String accountName, String database,
                                     String schemaName, String importQuery, String username, String password,
                                     @Nullable Boolean keyPairEnabled, @Nullable String path,
@@ -75,6 +157,10 @@ public class SnowflakeBatchSourceConfig extends BaseSnowflakeConfig {
     return maxSplitSize;
   }
 
+  public long getCombinedSplitSize() {
+    return combinedSplitSize == null ? 0 : combinedSplitSize;
+  }
+
   public String getReferenceName() {
     return referenceName;
   }
@@ -83,4 +169,71 @@ public class SnowflakeBatchSourceConfig extends BaseSnowflakeConfig {
   public String getSchema() {
     return schema;
   }
+
+  public ReadMode getReadMode() {
+    return EnumUtil.getEnumValue(ReadMode.class, readMode, ReadMode.STAGE);
+  }
+
+  public UnloadFormat getUnloadFormat() {
+    return EnumUtil.getEnumValue(UnloadFormat.class, unloadFormat, UnloadFormat.CSV);
+  }
+
+  public boolean getNativeNumberTypes() {
+    return nativeNumberTypes != null && nativeNumberTypes;
+  }
+
+  public boolean getKeepStageFiles() {
+    return keepStageFiles != null && keepStageFiles;
+  }
+
+  @Nullable
+  public String getPartitionColumn() {
+    return Strings.isNullOrEmpty(partitionColumn) ? null : partitionColumn;
+  }
+
+  public int getNumPartitions() {
+    return numPartitions == null ? 1 : numPartitions;
+  }
+
+  @Nullable
+  public String getWatermarkColumn() {
+    return Strings.isNullOrEmpty(watermarkColumn) ? null : watermarkColumn;
+  }
+
+  @Nullable
+  public String getWatermarkStorePath() {
+    return watermarkStorePath;
+  }
+
+  public boolean getSnapshotRead() {
+    return snapshotRead != null && snapshotRead;
+  }
+
+  @Override
+  public void validate(FailureCollector collector) {
+    super.validate(collector);
+
+    if (!containsMacro(PROPERTY_COMBINED_SPLIT_SIZE) && getCombinedSplitSize() < 0) {
+      collector.addFailure("Combined split size must not be negative.", null)
+        .withConfigProperty(PROPERTY_COMBINED_SPLIT_SIZE);
+    }
+    if (!containsMacro(PROPERTY_NUM_PARTITIONS) && getNumPartitions() < 1) {
+      collector.addFailure("Number of partitions must be positive.", null)
+        .withConfigProperty(PROPERTY_NUM_PARTITIONS);
+    }
+    if (!containsMacro(PROPERTY_WATERMARK_COLUMN) && !containsMacro(PROPERTY_WATERMARK_STORE_PATH)
+      && getWatermarkColumn() != null && Strings.isNullOrEmpty(watermarkStorePath)) {
+      collector.addFailure("Watermark store path must be set if watermark column is set.", null)
+        .withConfigProperty(PROPERTY_WATERMARK_STORE_PATH);
+    }
+    if (!containsMacro(PROPERTY_READ_MODE) && !EnumUtil.isValidEnumValue(ReadMode.class, readMode)) {
+      collector.addFailure(String.format("Unsupported value for '%s': '%s'", PROPERTY_READ_MODE, readMode), null)
+        .withConfigProperty(PROPERTY_READ_MODE);
+    }
+    if (!containsMacro(PROPERTY_UNLOAD_FORMAT) && !EnumUtil.isValidEnumValue(UnloadFormat.class, unloadFormat)) {
+      collector.addFailure(String.format("Unsupported value for '%s': '%s'", PROPERTY_UNLOAD_FORMAT, unloadFormat),
+                           null)
+        .withConfigProperty(PROPERTY_UNLOAD_FORMAT);
+    }
+  }
 }
@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses CSV files in the dialect unloaded by Snowflake source: comma delimiter, fields optionally enclosed in
+ * double quotes with quotes inside doubled, no escape characters and new line record delimiter.
+ * <p>
+ * Records are parsed in place in a byte buffer, which is reused for all the files read by the parser.
+ * Fields are exposed as {@link CharSequence} views of the buffer, so nothing is decoded unless
+ * {@code toString()} is called. The views are only valid until the next record is read.
+ */
+public class SnowflakeCsvParser implements Closeable {
+
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final byte DELIMITER = ',';
+  private static final byte QUOTE = '"';
+  private static final byte NEW_LINE = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  private InputStream inputStream;
+  private byte[] buffer;
+  // bytes in [position, limit) are read but not parsed yet
+  private int position;
+  private int limit;
+  private boolean endOfStream;
+
+  private Field[] fields = new Field[0];
+  private int fieldCount;
+
+  public SnowflakeCsvParser() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  SnowflakeCsvParser(int bufferSize) {
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * Starts parsing a new stream. The previous stream is not closed.
+   */
+  public void reset(InputStream inputStream) {
+    this.inputStream = inputStream;
+    this.position = 0;
+    this.limit = 0;
+    this.endOfStream = false;
+    this.fieldCount = 0;
+  }
+
+  /**
+   * Reads the next record and returns its fields as strings, e.g. for the header.
+   *
+   * @return fields of the record, or null if there are no records left.
+   */
+  public String[] readNextAsStrings() throws IOException {
+    if (!next()) {
+      return null;
+    }
+    String[] values = new String[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      values[i] = fields[i].toString();
+    }
+    return values;
+  }
+
+  /**
+   * Parses the next record.
+   *
+   * @return false if there are no records left.
+   */
+  public boolean next() throws IOException {
+    int recordEnd = findRecordEnd();
+    if (recordEnd < 0) {
+      fieldCount = 0;
+      return false;
+    }
+    int nextPosition = recordEnd < limit ? recordEnd + 1 : recordEnd;
+    if (recordEnd > position && buffer[recordEnd - 1] == CARRIAGE_RETURN) {
+      recordEnd--;
+    }
+    parseFields(position, recordEnd);
+    position = nextPosition;
+    return true;
+  }
+
+  /**
+   * Returns all fields of the current record, valid until the next record is parsed.
+   */
+  public List<CharSequence> getFields() {
+    return Arrays.<CharSequence>asList(fields).subList(0, fieldCount);
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Returns a field of the current record, valid until the next record is parsed.
+   */
+  public CharSequence getField(int index) {
+    if (index >= fieldCount) {
+      throw new IndexOutOfBoundsException(String.format("Field %d of %d", index, fieldCount));
+    }
+    return fields[index];
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (inputStream != null) {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * Makes sure the whole record starting at the current position is in the buffer.
+   *
+   * @return index of the new line ending the record, limit if the last record has no new line, or -1 if
+   * there are no records left.
+   */
+  private int findRecordEnd() throws IOException {
+    boolean enclosed = false;
+    int index = position;
+    while (true) {
+      for (; index < limit; index++) {
+        byte b = buffer[index];
+        // a doubled quote toggles the state twice
+        if (b == QUOTE) {
+          enclosed = !enclosed;
+        } else if (b == NEW_LINE && !enclosed) {
+          return index;
+        }
+      }
+      int offset = position;
+      if (!fill()) {
+        return position == limit ? -1 : limit;
+      }
+      // the unparsed bytes were moved to the beginning of the buffer
+      index -= offset;
+    }
+  }
+
+  private boolean fill() throws IOException {
+    if (endOfStream) {
+      return false;
+    }
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    } else if (limit == buffer.length) {
+      // a record longer than the buffer
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int read = inputStream.read(buffer, limit, buffer.length - limit);
+    while (read == 0) {
+      read = inputStream.read(buffer, limit, buffer.length - limit);
+    }
+    if (read < 0) {
+      endOfStream = true;
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+  private void parseFields(int start, int end) {
+    fieldCount = 0;
+    int index = start;
+    while (true) {
+      Field field = nextField();
+      if (index < end && buffer[index] == QUOTE) {
+        // quotes inside are doubled, they are unescaped in place as the field can only get shorter
+        int read = index + 1;
+        int write = read;
+        while (read < end) {
+          byte b = buffer[read++];
+          if (b == QUOTE) {
+            if (read < end && buffer[read] == QUOTE) {
+              read++;
+            } else {
+              break;
+            }
+          }
+          buffer[write++] = b;
+        }
+        field.set(buffer, index + 1, write);
+        index = read;
+        // nothing is expected between the closing quote and the delimiter
+        while (index < end && buffer[index] != DELIMITER) {
+          index++;
+        }
+      } else {
+        int fieldEnd = index;
+        while (fieldEnd < end && buffer[fieldEnd] != DELIMITER) {
+          fieldEnd++;
+        }
+        field.set(buffer, index, fieldEnd);
+        index = fieldEnd;
+      }
+      if (index >= end) {
+        return;
+      }
+      // skip the delimiter, a record ending with it has one more empty field
+      index++;
+    }
+  }
+
+  private Field nextField() {
+    if (fieldCount == fields.length) {
+      fields = Arrays.copyOf(fields, Math.max(8, fields.length * 2));
+      for (int i = fieldCount; i < fields.length; i++) {
+        fields[i] = new Field();
+      }
+    }
+    return fields[fieldCount++];
+  }
+
+  /**
+   * A field of the current record. Characters are the bytes of the field, which is exact for ASCII content,
+   * like numbers, dates and hex binaries. {@link #toString()} decodes the field as UTF-8.
+   */
+  private static class Field implements CharSequence {
+    private byte[] bytes;
+    private int start;
+    private int end;
+
+    private void set(byte[] bytes, int start, int end) {
+      this.bytes = bytes;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes[start + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      Field field = new Field();
+      field.set(bytes, start + from, start + to);
+      return field;
+    }
+
+    @Override
+    public String toString() {
+      return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -17,9 +17,16 @@
 package io.cdap.plugin.snowflake.source.batch;
 
 
+import com.google.common.base.Strings;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.snowflake.common.client.SnowflakeFieldDescriptor;
+import io.cdap.plugin.snowflake.common.util.QueryUtil;
+import io.cdap.plugin.snowflake.common.util.SchemaHelper;
+import net.snowflake.client.jdbc.SnowflakeResultSetSerializable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -27,7 +34,10 @@ import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -40,26 +50,132 @@ public class SnowflakeInputFormat extends InputFormat {
 
   @Override
   public List<InputSplit> getSplits(JobContext jobContext) throws IOException {
-    SnowflakeSourceAccessor snowflakeAccessor = getSnowflakeAccessor(jobContext.getConfiguration());
-    List<String> stageSplits = snowflakeAccessor.prepareStageSplits();
-    return stageSplits.stream()
-      .map(SnowflakeSplit::new)
-      .collect(Collectors.toList());
+    SnowflakeBatchSourceConfig config = getConfig(jobContext.getConfiguration());
+    SnowflakeSourceAccessor snowflakeAccessor = new SnowflakeSourceAccessor(config);
+    String importQuery = getImportQuery(jobContext.getConfiguration(), snowflakeAccessor, config);
+    switch (config.getReadMode()) {
+      case STAGE:
+        // the stage path is generated in prepareRun, so that the files can be removed when the run finishes
+        String stagePath = jobContext.getConfiguration().get(SnowflakeInputFormatProvider.PROPERTY_STAGE_PATH);
+        List<SnowflakeSplit> stageSplits = snowflakeAccessor.prepareStageSplits(importQuery, stagePath);
+        if (config.getCombinedSplitSize() > 0) {
+          stageSplits = combineSplits(stageSplits, config.getCombinedSplitSize());
+        }
+        return new ArrayList<>(stageSplits);
+      case RESULT_SET:
+        List<SnowflakeResultSetSerializable> resultSetSplits = snowflakeAccessor.prepareResultSetSplits(importQuery);
+        return resultSetSplits.stream()
+          .map(SnowflakeResultSetSplit::new)
+          .collect(Collectors.toList());
+      default:
+        throw new IllegalStateException(String.format("Unknown value for readMode: '%s'", config.getReadMode()));
+    }
   }
 
   @Override
   public RecordReader createRecordReader(InputSplit inputSplit,
-                                         TaskAttemptContext context) {
+                                         TaskAttemptContext context) throws IOException {
+    SnowflakeBatchSourceConfig config = getConfig(context.getConfiguration());
+    SnowflakeSourceAccessor snowflakeAccessor = new SnowflakeSourceAccessor(config);
+    Schema schema = getSchema(context.getConfiguration(), snowflakeAccessor, config);
+    SnowflakeMapToRecordTransformer transformer = new SnowflakeMapToRecordTransformer(schema);
+    return new SnowflakeStructuredRecordReader(createRowReader(inputSplit, config, snowflakeAccessor), transformer);
+  }
+
+  private RecordReader<NullWritable, SnowflakeRow> createRowReader(InputSplit inputSplit,
+                                                                  SnowflakeBatchSourceConfig config,
+                                                                  SnowflakeSourceAccessor snowflakeAccessor) {
+    if (inputSplit instanceof SnowflakeResultSetSplit) {
+      SnowflakeResultSetSplit resultSetSplit = (SnowflakeResultSetSplit) inputSplit;
+      return new SnowflakeResultSetRecordReader(resultSetSplit.getResultSetChunk(), snowflakeAccessor);
+    }
     SnowflakeSplit snowflakeSplit = (SnowflakeSplit) inputSplit;
-    SnowflakeSourceAccessor snowflakeAccessor = getSnowflakeAccessor(context.getConfiguration());
-    return new SnowflakeRecordReader(snowflakeSplit.getStageSplit(), snowflakeAccessor);
+    if (config.getUnloadFormat() == UnloadFormat.PARQUET) {
+      return new SnowflakeParquetRecordReader(snowflakeSplit.getStageFiles(), snowflakeAccessor);
+    }
+    return new SnowflakeRecordReader(snowflakeSplit.getStageFiles(), snowflakeAccessor);
+  }
+
+  /**
+   * Narrows the import query to the columns of the output schema, so that the columns, which would be dropped
+   * by the record reader, are not unloaded at all. Only a schema set by the user can omit query columns.
+   */
+  private String getImportQuery(Configuration configuration, SnowflakeSourceAccessor snowflakeAccessor,
+                                SnowflakeBatchSourceConfig config) throws IOException {
+    // import query narrowed in prepareRun, e.g. to the rows above the watermark
+    String importQuery = configuration.get(SnowflakeInputFormatProvider.PROPERTY_IMPORT_QUERY,
+                                           config.getImportQuery());
+    if (Strings.isNullOrEmpty(config.getSchema())) {
+      return importQuery;
+    }
+    Schema schema = getSchema(configuration, snowflakeAccessor, config);
+    Set<String> queryColumns = snowflakeAccessor.describeQueryCached(importQuery).stream()
+      .map(SnowflakeFieldDescriptor::getName)
+      .collect(Collectors.toSet());
+    // schema fields missing in the query are left null by the record reader
+    List<String> columns = schema.getFields().stream()
+      .map(Schema.Field::getName)
+      .filter(queryColumns::contains)
+      .collect(Collectors.toList());
+    // ranges of the unload are selected by the partition column, even if it is not read
+    String partitionColumn = config.getPartitionColumn();
+    if (partitionColumn != null && queryColumns.contains(partitionColumn) && !columns.contains(partitionColumn)) {
+      columns.add(partitionColumn);
+    }
+    if (columns.isEmpty() || columns.size() == queryColumns.size()) {
+      return importQuery;
+    }
+    return QueryUtil.projectQuery(importQuery, columns);
+  }
+
+  private Schema getSchema(Configuration configuration, SnowflakeSourceAccessor snowflakeAccessor,
+                           SnowflakeBatchSourceConfig config) throws IOException {
+    // schema is resolved once in prepareRun, so that all tasks use the same one without describing the query
+    String schemaJson = configuration.get(SnowflakeInputFormatProvider.PROPERTY_SCHEMA_JSON);
+    if (schemaJson == null) {
+      return SchemaHelper.getSchema(snowflakeAccessor, config.getImportQuery(), config.getNativeNumberTypes());
+    }
+    return Schema.parseJson(schemaJson);
+  }
+
+  /**
+   * Packs stage file splits into combined splits of at most the target size, using first fit decreasing.
+   * Splits larger than the target are kept on their own.
+   *
+   * @param splits splits of single stage files.
+   * @param targetSize maximum total length of a combined split.
+   * @return combined splits, largest first.
+   */
+  static List<SnowflakeSplit> combineSplits(List<SnowflakeSplit> splits, long targetSize) {
+    List<SnowflakeSplit> sorted = new ArrayList<>(splits);
+    sorted.sort(Comparator.comparingLong(SnowflakeSplit::getLength).reversed());
+
+    List<List<String>> binFiles = new ArrayList<>();
+    List<Long> binLengths = new ArrayList<>();
+    for (SnowflakeSplit split : sorted) {
+      int bin = 0;
+      while (bin < binLengths.size() && binLengths.get(bin) + split.getLength() > targetSize) {
+        bin++;
+      }
+      if (bin == binLengths.size()) {
+        binFiles.add(new ArrayList<>());
+        binLengths.add(0L);
+      }
+      binFiles.get(bin).addAll(split.getStageFiles());
+      binLengths.set(bin, binLengths.get(bin) + split.getLength());
+    }
+
+    List<SnowflakeSplit> combined = new ArrayList<>(binFiles.size());
+    for (int i = 0; i < binFiles.size(); i++) {
+      combined.add(new SnowflakeSplit(binFiles.get(i), binLengths.get(i)));
+    }
+    combined.sort(Comparator.comparingLong(SnowflakeSplit::getLength).reversed());
+    return combined;
   }
 
-  private SnowflakeSourceAccessor getSnowflakeAccessor(Configuration configuration) {
+  private SnowflakeBatchSourceConfig getConfig(Configuration configuration) {
     String configJson = configuration.get(
       SnowflakeInputFormatProvider.PROPERTY_CONFIG_JSON);
-    SnowflakeBatchSourceConfig config = GSON.fromJson(
-      configJson, SnowflakeBatchSourceConfig.class);
-    return new SnowflakeSourceAccessor(config);
+    return GSON.fromJson(configJson, SnowflakeBatchSourceConfig.class);
   }
 }
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import io.cdap.cdap.api.data.batch.InputFormatProvider;
+import io.cdap.cdap.api.data.schema.Schema;
 
 import java.util.Map;
 
@@ -29,13 +30,20 @@ import java.util.Map;
 public class SnowflakeInputFormatProvider implements InputFormatProvider {
 
   public static final String PROPERTY_CONFIG_JSON = "cdap.snowflake.source.config";
+  public static final String PROPERTY_SCHEMA_JSON = "cdap.snowflake.source.schema";
+  public static final String PROPERTY_STAGE_PATH = "cdap.snowflake.source.stage.path";
+  public static final String PROPERTY_IMPORT_QUERY = "cdap.snowflake.source.import.query";
 
   private static final Gson GSON = new Gson();
   private final Map<String, String> conf;
 
-  public SnowflakeInputFormatProvider(SnowflakeBatchSourceConfig config) {
+  public SnowflakeInputFormatProvider(SnowflakeBatchSourceConfig config, Schema schema, String stagePath,
+                                      String importQuery) {
     this.conf = new ImmutableMap.Builder<String, String>()
       .put(PROPERTY_CONFIG_JSON, GSON.toJson(config))
+      .put(PROPERTY_SCHEMA_JSON, schema.toString())
+      .put(PROPERTY_STAGE_PATH, stagePath)
+      .put(PROPERTY_IMPORT_QUERY, importQuery)
       .build();
   }
 
@@ -16,21 +16,19 @@
 
 package io.cdap.plugin.snowflake.source.batch;
 
-import com.google.common.base.Strings;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.format.UnexpectedFormatException;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.snowflake.common.util.DateTimeUtil;
+import io.cdap.plugin.snowflake.common.util.DecimalUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import javax.annotation.Nullable;
+import java.util.Objects;
 
 /**
  * Transforms Snowflake row into {@link StructuredRecord}.
@@ -39,86 +37,200 @@ public class SnowflakeMapToRecordTransformer {
   private static final Logger LOG = LoggerFactory.getLogger(SnowflakeMapToRecordTransformer.class);
 
   private final Schema schema;
+  // converters compiled once for each field of the schema, for text and for typed rows
+  private final Map<String, FieldConverter> textConverters;
+  private final Map<String, FieldConverter> typedConverters;
+  // columns of the split the transformer is currently bound to
+  private String[] boundHeaders;
+  private boolean boundTyped;
+  // schema field for each column position, null if the column is absent in the schema
+  private Schema.Field[] boundFields;
+  private FieldConverter[] boundConverters;
 
   public SnowflakeMapToRecordTransformer(Schema schema) {
     this.schema = schema;
+    this.textConverters = new HashMap<>();
+    this.typedConverters = new HashMap<>();
+    for (Schema.Field field : Objects.requireNonNull(schema.getFields())) {
+      textConverters.put(field.getName(), compileTextConverter(field.getName(), field.getSchema()));
+      typedConverters.put(field.getName(), compileTypedConverter(field.getName(), field.getSchema()));
+    }
+  }
+
+  public StructuredRecord transform(SnowflakeRow row) {
+    // all rows of a split share the same headers instance, so columns are bound to the schema once per split
+    if (row.getHeaders() != boundHeaders) {
+      bind(row.getHeaders(), row.isTyped());
+    }
+    return getStructuredRecord(row);
   }
 
-  public StructuredRecord transform(Map<String, String> row) {
-    return getStructuredRecord(row, schema);
+  private void bind(String[] headers, boolean typed) {
+    Map<String, FieldConverter> converters = typed ? typedConverters : textConverters;
+    Schema.Field[] fields = new Schema.Field[headers.length];
+    FieldConverter[] fieldConverters = new FieldConverter[headers.length];
+    for (int i = 0; i < headers.length; i++) {
+      fields[i] = schema.getField(headers[i]);
+      fieldConverters[i] = fields[i] == null ? null : converters.get(fields[i].getName());
+    }
+    this.boundFields = fields;
+    this.boundConverters = fieldConverters;
+    this.boundTyped = typed;
+    this.boundHeaders = headers;
   }
 
-  private StructuredRecord getStructuredRecord(Map<String, String> row, Schema schema) {
+  private StructuredRecord getStructuredRecord(SnowflakeRow row) {
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    row.entrySet().stream()
-      .filter(entry -> schema.getField(entry.getKey()) != null) // filter absent fields in the schema
-      .forEach(entry -> builder.set(
-        entry.getKey(),
-        convertValue(entry.getKey(), entry.getValue(), schema.getField(entry.getKey()).getSchema())));
+    int columns = Math.min(boundFields.length, row.size());
+    for (int i = 0; i < columns; i++) {
+      Schema.Field field = boundFields[i];
+      if (field == null) {
+        continue; // filter absent fields in the schema
+      }
+      Object value = row.get(i);
+      // empty string is considered null in csv
+      boolean isNull = value == null || (!boundTyped && ((CharSequence) value).length() == 0);
+      builder.set(field.getName(), isNull ? null : boundConverters[i].convert(value));
+    }
     return builder.build();
   }
 
-  @Nullable
-  private Object convertValue(String fieldName, String value, Schema fieldSchema) {
+  /**
+   * Resolves nullability, logical type and type of the field once, so that converting a value is a single call.
+   */
+  private static FieldConverter compileTextConverter(String fieldName, Schema fieldSchema) {
     if (fieldSchema.isNullable()) {
-      return convertValue(fieldName, value, fieldSchema.getNonNullable());
+      return compileTextConverter(fieldName, fieldSchema.getNonNullable());
     }
 
-    Schema.Type fieldSchemaType = fieldSchema.getType();
+    Schema.LogicalType logicalType = fieldSchema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          // date will be in yyyy-mm-dd format
+          return value -> DateTimeUtil.parseEpochDay((CharSequence) value);
+        case TIMESTAMP_MICROS:
+          return value -> DateTimeUtil.parseTimestampMicros((CharSequence) value);
+        case TIME_MICROS:
+          return value -> DateTimeUtil.parseTimeMicros((CharSequence) value);
+        case DECIMAL:
+          int scale = fieldSchema.getScale();
+          return value -> DecimalUtil.toUnscaledBytes((CharSequence) value, scale);
+        default:
+          return unsupportedLogicalType(fieldSchema);
+      }
+    }
 
-    // empty string is considered null in csv
-    if (value == null || Strings.isNullOrEmpty(value)) {
-      return null;
+    switch (fieldSchema.getType()) {
+      case NULL:
+        return value -> null;
+      case BYTES:
+        // decode hex value
+        return value -> hexStringToByteArray((CharSequence) value);
+      case BOOLEAN:
+        return value -> parseBoolean((CharSequence) value);
+      case INT:
+        return value -> Integer.parseInt(value.toString());
+      case LONG:
+        return value -> Long.parseLong(value.toString());
+      case DOUBLE:
+        return value -> Double.parseDouble(value.toString());
+      case STRING:
+        // the only conversion which decodes the text of the value
+        return Object::toString;
+      default:
+        return unsupportedType(fieldName, fieldSchema);
+    }
+  }
+
+  /**
+   * Same as {@link #compileTextConverter(String, Schema)}, but for values already decoded by a typed reader.
+   * Only adapts the Java representation of the value to the one expected by the schema field.
+   */
+  private static FieldConverter compileTypedConverter(String fieldName, Schema fieldSchema) {
+    if (fieldSchema.isNullable()) {
+      return compileTypedConverter(fieldName, fieldSchema.getNonNullable());
     }
 
     Schema.LogicalType logicalType = fieldSchema.getLogicalType();
     if (logicalType != null) {
       switch (logicalType) {
         case DATE:
-          // date will be in yyyy-mm-dd format
-          return Math.toIntExact(LocalDate.parse(value).toEpochDay());
+          // epoch day
+          return value -> ((Number) value).intValue();
         case TIMESTAMP_MICROS:
-          Instant instant = DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(value, Instant::from);
-          return TimeUnit.MILLISECONDS.toMicros(instant.toEpochMilli());
         case TIME_MICROS:
-          return TimeUnit.NANOSECONDS.toMicros(LocalTime.parse(value).toNanoOfDay());
+          return value -> ((Number) value).longValue();
         case DECIMAL:
-          return new BigDecimal(value).setScale(fieldSchema.getScale()).unscaledValue().toByteArray();
+          int scale = fieldSchema.getScale();
+          return value -> toBigDecimal(value).setScale(scale).unscaledValue().toByteArray();
         default:
-          throw new IllegalArgumentException(
-            String.format("Field '%s' is of unsupported type '%s'", fieldSchema.getDisplayName(),
-                          logicalType.getToken()));
+          return unsupportedLogicalType(fieldSchema);
       }
     }
 
-    switch (fieldSchemaType) {
+    switch (fieldSchema.getType()) {
       case NULL:
-        return null;
+        return value -> null;
       case BYTES:
-        // decode hex value
-        return hexStringToByteArray(value);
+        return value -> value instanceof String ? ((String) value).getBytes(StandardCharsets.UTF_8) : value;
       case BOOLEAN:
-        return Boolean.parseBoolean(castValue(value, fieldName, String.class));
+        return value -> value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+      case INT:
+        return value -> ((Number) value).intValue();
+      case LONG:
+        return value -> ((Number) value).longValue();
       case DOUBLE:
-        return Double.parseDouble(castValue(value, fieldName, String.class));
+        return value -> ((Number) value).doubleValue();
       case STRING:
-        return value;
+        return value -> value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString();
+      default:
+        return unsupportedType(fieldName, fieldSchema);
+    }
+  }
+
+  private static BigDecimal toBigDecimal(Object value) {
+    if (value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    }
+    if (value instanceof Integer || value instanceof Long) {
+      return BigDecimal.valueOf(((Number) value).longValue());
     }
+    return new BigDecimal(value.toString());
+  }
+
+  // fail only when a value is actually met, so that always empty columns of unsupported types are still read
+  private static FieldConverter unsupportedLogicalType(Schema fieldSchema) {
+    return value -> {
+      throw new IllegalArgumentException(
+        String.format("Field '%s' is of unsupported type '%s'", fieldSchema.getDisplayName(),
+                      fieldSchema.getLogicalType().getToken()));
+    };
+  }
 
-    throw new UnexpectedFormatException(
-      String.format("Unsupported schema type: '%s' for field: '%s'. Supported types are 'bytes, boolean, "
-                      + "double, string'.", fieldSchema, fieldName));
+  private static FieldConverter unsupportedType(String fieldName, Schema fieldSchema) {
+    return value -> {
+      throw new UnexpectedFormatException(
+        String.format("Unsupported schema type: '%s' for field: '%s'. Supported types are 'bytes, boolean, "
+                        + "int, long, double, string'.", fieldSchema, fieldName));
+    };
   }
 
-  private static <T> T castValue(Object value, String fieldName, Class<T> clazz) {
-    if (clazz.isAssignableFrom(value.getClass())) {
-      return clazz.cast(value);
+  // same as Boolean.parseBoolean(String)
+  private static boolean parseBoolean(CharSequence value) {
+    String expected = "true";
+    if (value.length() != expected.length()) {
+      return false;
+    }
+    for (int i = 0; i < expected.length(); i++) {
+      if (Character.toLowerCase(value.charAt(i)) != expected.charAt(i)) {
+        return false;
+      }
     }
-    throw new UnexpectedFormatException(
-      String.format("Field '%s' is not of expected type '%s'", fieldName, clazz.getSimpleName()));
+    return true;
   }
 
-  private static byte[] hexStringToByteArray(String s) {
+  private static byte[] hexStringToByteArray(CharSequence s) {
     int len = s.length();
     byte[] data = new byte[len / 2];
     for (int i = 0; i < len; i += 2) {
@@ -127,4 +239,11 @@ public class SnowflakeMapToRecordTransformer {
     }
     return data;
   }
+
+  /**
+   * Converts a non-empty value of a column into the value of the schema field.
+   */
+  private interface FieldConverter {
+    Object convert(Object value);
+  }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * RecordReader implementation, which reads Parquet files unloaded from Snowflake.
+ * Values are decoded according to the Parquet column types, no text parsing is involved.
+ */
+public class SnowflakeParquetRecordReader extends RecordReader<NullWritable, SnowflakeRow> {
+
+  private static final long JULIAN_DAY_OF_EPOCH = 2440588L;
+  private static final long MICROS_PER_DAY = 86400000000L;
+
+  private final List<String> stageFiles;
+  private final SnowflakeSourceAccessor snowflakeAccessor;
+  private Configuration conf;
+  // index of the stage file currently read
+  private int fileIndex = -1;
+  private java.nio.file.Path localFile;
+  private ParquetReader<Group> parquetReader;
+  private ColumnDecoder[] decoders;
+  private SnowflakeRow row;
+  private Object[] values;
+  private long length;
+  private long completedBytes;
+  private long fileSize;
+  private long rowCount;
+  private long rowsRead;
+
+  public SnowflakeParquetRecordReader(List<String> stageFiles, SnowflakeSourceAccessor snowflakeAccessor) {
+    this.stageFiles = stageFiles;
+    this.snowflakeAccessor = snowflakeAccessor;
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+    this.conf = context.getConfiguration();
+    this.length = inputSplit.getLength();
+    openNextFile();
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (parquetReader != null) {
+      Group group = parquetReader.read();
+      if (group != null) {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = group.getFieldRepetitionCount(i) == 0 ? null : decoders[i].decode(group, i);
+        }
+        rowsRead++;
+        return true;
+      }
+      openNextFile();
+    }
+    return false;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public SnowflakeRow getCurrentValue() {
+    return row;
+  }
+
+  @Override
+  public float getProgress() {
+    if (length <= 0) {
+      return 0;
+    }
+    float fileProgress = rowCount == 0 ? 0 : (float) rowsRead / rowCount;
+    return Math.min(1.0f, (completedBytes + fileSize * fileProgress) / length);
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeCurrentFile();
+  }
+
+  private void openNextFile() throws IOException {
+    closeCurrentFile();
+    if (++fileIndex >= stageFiles.size()) {
+      return;
+    }
+
+    // Parquet footer is at the end of the file, so the file is downloaded before reading
+    localFile = Files.createTempFile("cdap_snowflake", ".parquet");
+    snowflakeAccessor.downloadStageFile(stageFiles.get(fileIndex), localFile);
+    fileSize = Files.size(localFile);
+
+    Path path = new Path(localFile.toUri());
+    MessageType fileSchema;
+    try (ParquetFileReader fileReader = ParquetFileReader.open(HadoopInputFile.fromPath(path, conf))) {
+      fileSchema = fileReader.getFooter().getFileMetaData().getSchema();
+      rowCount = fileReader.getRecordCount();
+    }
+    rowsRead = 0;
+
+    List<Type> columns = fileSchema.getFields();
+    decoders = new ColumnDecoder[columns.size()];
+    for (int i = 0; i < decoders.length; i++) {
+      decoders[i] = compileDecoder(columns.get(i));
+    }
+    // all the files have the same columns, so the row of the first file is shared by all the rows
+    if (row == null) {
+      String[] headers = columns.stream().map(Type::getName).toArray(String[]::new);
+      row = new SnowflakeRow(headers, true);
+      values = new Object[headers.length];
+      row.setValues(values);
+    }
+
+    parquetReader = ParquetReader.builder(new GroupReadSupport(), path).withConf(conf).build();
+  }
+
+  private void closeCurrentFile() throws IOException {
+    if (localFile == null) {
+      return;
+    }
+    if (parquetReader != null) {
+      parquetReader.close();
+      parquetReader = null;
+    }
+    Files.deleteIfExists(localFile);
+    localFile = null;
+    completedBytes += fileSize;
+    fileSize = 0;
+    rowCount = 0;
+  }
+
+  /**
+   * Resolves how a column is decoded once per file. Decoded values use the same representation as CDAP:
+   * epoch days for dates, microseconds for times and timestamps, {@link BigDecimal} for decimals.
+   */
+  private static ColumnDecoder compileDecoder(Type column) throws IOException {
+    if (!column.isPrimitive()) {
+      throw new IOException(String.format("Column '%s' of nested type is not supported", column.getName()));
+    }
+
+    PrimitiveType primitiveType = column.asPrimitiveType();
+    LogicalTypeAnnotation annotation = primitiveType.getLogicalTypeAnnotation();
+
+    if (annotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) {
+      int scale = ((LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) annotation).getScale();
+      switch (primitiveType.getPrimitiveTypeName()) {
+        case INT32:
+          return (group, field) -> BigDecimal.valueOf(group.getInteger(field, 0), scale);
+        case INT64:
+          return (group, field) -> BigDecimal.valueOf(group.getLong(field, 0), scale);
+        default:
+          return (group, field) -> new BigDecimal(new BigInteger(group.getBinary(field, 0).getBytes()), scale);
+      }
+    }
+    if (annotation instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) {
+      return toMicros(((LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) annotation).getUnit());
+    }
+    if (annotation instanceof LogicalTypeAnnotation.TimeLogicalTypeAnnotation) {
+      LogicalTypeAnnotation.TimeUnit unit = ((LogicalTypeAnnotation.TimeLogicalTypeAnnotation) annotation).getUnit();
+      if (unit == LogicalTypeAnnotation.TimeUnit.MILLIS) {
+        return (group, field) -> group.getInteger(field, 0) * 1000L;
+      }
+      return toMicros(unit);
+    }
+
+    switch (primitiveType.getPrimitiveTypeName()) {
+      case BOOLEAN:
+        return (group, field) -> group.getBoolean(field, 0);
+      case INT32:
+        // also covers DATE, which is stored as epoch day
+        return (group, field) -> group.getInteger(field, 0);
+      case INT64:
+        return (group, field) -> group.getLong(field, 0);
+      case FLOAT:
+        return (group, field) -> (double) group.getFloat(field, 0);
+      case DOUBLE:
+        return (group, field) -> group.getDouble(field, 0);
+      case INT96:
+        return (group, field) -> int96ToMicros(group.getInt96(field, 0));
+      default:
+        if (annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation
+          || annotation instanceof LogicalTypeAnnotation.JsonLogicalTypeAnnotation) {
+          return (group, field) -> group.getBinary(field, 0).toStringUsingUTF8();
+        }
+        return (group, field) -> group.getBinary(field, 0).getBytes();
+    }
+  }
+
+  private static ColumnDecoder toMicros(LogicalTypeAnnotation.TimeUnit unit) {
+    switch (unit) {
+      case MILLIS:
+        return (group, field) -> group.getLong(field, 0) * 1000L;
+      case NANOS:
+        return (group, field) -> Math.floorDiv(group.getLong(field, 0), 1000L);
+      default:
+        return (group, field) -> group.getLong(field, 0);
+    }
+  }
+
+  // INT96 holds nanoseconds of the day followed by the julian day, both little endian
+  private static long int96ToMicros(Binary value) {
+    ByteBuffer buffer = value.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    long nanosOfDay = buffer.getLong();
+    long julianDay = buffer.getInt();
+    return (julianDay - JULIAN_DAY_OF_EPOCH) * MICROS_PER_DAY + nanosOfDay / 1000L;
+  }
+
+  /**
+   * Decodes a present value of a column from a Parquet record.
+   */
+  private interface ColumnDecoder {
+    Object decode(Group group, int field);
+  }
+}
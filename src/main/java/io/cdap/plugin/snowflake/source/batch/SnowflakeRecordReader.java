@@ -16,8 +16,6 @@
 
 package io.cdap.plugin.snowflake.source.batch;
 
-import au.com.bytecode.opencsv.CSVReader;
-
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -26,38 +24,73 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * RecordReader implementation, which reads object from Snowflake.
+ * Stage files of a combined split are read one after another. Files are kept in the stage, so that a retried
+ * task can read them again, and are removed by the source when the run finishes.
+ * Files are downloaded and decompressed on background threads, the next file of the split is prefetched while
+ * the current one is parsed.
  */
-public class SnowflakeRecordReader extends RecordReader<NullWritable, Map<String, String>> {
+public class SnowflakeRecordReader extends RecordReader<NullWritable, SnowflakeRow> {
 
   private static final Logger LOG = LoggerFactory.getLogger(SnowflakeRecordReader.class);
-  private final String stageSplit;
+  private static final int PREFETCH_CHUNK_SIZE = 256 * 1024;
+  private static final int PREFETCH_CHUNK_COUNT = 8;
+  private final List<String> stageFiles;
   private final SnowflakeSourceAccessor snowflakeAccessor;
-  private CSVReader csvReader;
-  private String[] headers;
-  private String[] nextLine;
+  // one thread for the current file and one for the next
+  private final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(2, runnable -> {
+    Thread thread = new Thread(runnable, "snowflake-stage-prefetch");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // index of the stage file currently read
+  private int fileIndex = -1;
+  private PrefetchingInputStream stageFileStream;
+  private PrefetchingInputStream nextStageFileStream;
+  private long completedBytes;
+  private long length;
+  // the parser and its buffer are reused for all the files of the split
+  private final SnowflakeCsvParser csvParser = new SnowflakeCsvParser();
+  private Object[] values = new Object[0];
+  private SnowflakeRow row;
 
-  public SnowflakeRecordReader(String stageSplit, SnowflakeSourceAccessor snowflakeAccessor) {
-    this.stageSplit = stageSplit;
+  public SnowflakeRecordReader(List<String> stageFiles, SnowflakeSourceAccessor snowflakeAccessor) {
+    this.stageFiles = stageFiles;
     this.snowflakeAccessor = snowflakeAccessor;
   }
 
   @Override
-  public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException {
-    this.csvReader = snowflakeAccessor.buildCsvReader(stageSplit);
-    this.headers = csvReader.readNext();
+  public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+    // bytes are counted before decompression, so that progress is comparable with the split length
+    this.length = inputSplit.getLength();
+    openNextFile();
   }
 
   @Override
   public boolean nextKeyValue() throws IOException {
-    nextLine = csvReader.readNext();
-    return nextLine != null;
+    while (stageFileStream != null) {
+      if (csvParser.next()) {
+        int fieldCount = csvParser.getFieldCount();
+        if (values.length != fieldCount) {
+          values = new Object[fieldCount];
+        }
+        for (int i = 0; i < fieldCount; i++) {
+          values[i] = csvParser.getField(i);
+        }
+        if (row.getHeaders().length != fieldCount) {
+          LOG.warn("Row with wrong data in csv -> {}", String.join(",", csvParser.getFields()));
+        }
+        row.setValues(values);
+        return true;
+      }
+      openNextFile();
+    }
+    return false;
   }
 
   @Override
@@ -66,27 +99,63 @@ public class SnowflakeRecordReader extends RecordReader<NullWritable, Map<String
   }
 
   @Override
-  public Map<String, String> getCurrentValue() {
-    Map<String, String> result = new HashMap<>();
-    if (headers.length != nextLine.length) {
-      LOG.warn("Row with wrong data in csv -> {}", Arrays.stream(nextLine).collect(Collectors.joining(",")));
-    }
-    for (int i = 0; i < headers.length && i < nextLine.length; i++) {
-      result.put(headers[i], nextLine[i]);
-    }
-    return result;
+  public SnowflakeRow getCurrentValue() {
+    return row;
   }
 
   @Override
   public float getProgress() {
-    return 0;
+    if (length <= 0) {
+      return 0;
+    }
+    long consumedBytes = completedBytes + (stageFileStream == null ? 0 : stageFileStream.getSourceBytes());
+    return Math.min(1.0f, (float) consumedBytes / length);
   }
 
   @Override
   public void close() throws IOException {
-    if (csvReader != null) {
-      csvReader.close();
+    try {
+      closeCurrentFile();
+      if (nextStageFileStream != null) {
+        nextStageFileStream.close();
+        nextStageFileStream = null;
+      }
+    } finally {
+      prefetchExecutor.shutdownNow();
     }
-    snowflakeAccessor.removeStageFile(stageSplit);
+  }
+
+  private void openNextFile() throws IOException {
+    closeCurrentFile();
+    while (++fileIndex < stageFiles.size()) {
+      stageFileStream = nextStageFileStream == null ? prefetch(fileIndex) : nextStageFileStream;
+      nextStageFileStream = fileIndex + 1 < stageFiles.size() ? prefetch(fileIndex + 1) : null;
+      csvParser.reset(stageFileStream);
+      // each file starts with the header, the one of the first file is shared by all the rows
+      String[] headers = csvParser.readNextAsStrings();
+      if (headers != null) {
+        if (row == null) {
+          row = new SnowflakeRow(headers);
+        }
+        return;
+      }
+      closeCurrentFile();
+    }
+  }
+
+  private void closeCurrentFile() throws IOException {
+    if (stageFileStream == null) {
+      return;
+    }
+    completedBytes += stageFileStream.getSourceBytes();
+    csvParser.close();
+    stageFileStream.close();
+    stageFileStream = null;
+  }
+
+  private PrefetchingInputStream prefetch(int index) {
+    String stageFile = stageFiles.get(index);
+    return new PrefetchingInputStream(() -> snowflakeAccessor.openStageFile(stageFile), prefetchExecutor,
+                                      PREFETCH_CHUNK_SIZE, PREFETCH_CHUNK_COUNT);
   }
 }
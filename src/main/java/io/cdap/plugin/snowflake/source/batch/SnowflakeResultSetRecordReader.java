@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import net.snowflake.client.jdbc.SnowflakeResultSetSerializable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * RecordReader implementation, which reads a chunk of the query result directly from Snowflake.
+ */
+public class SnowflakeResultSetRecordReader extends RecordReader<NullWritable, SnowflakeRow> {
+
+  private final SnowflakeResultSetSerializable resultSetChunk;
+  private final SnowflakeSourceAccessor snowflakeAccessor;
+  private ResultSet resultSet;
+  private SnowflakeRow row;
+  private String[] values;
+  private long rowCount;
+  private long rowsRead;
+
+  public SnowflakeResultSetRecordReader(SnowflakeResultSetSerializable resultSetChunk,
+                                        SnowflakeSourceAccessor snowflakeAccessor) {
+    this.resultSetChunk = resultSetChunk;
+    this.snowflakeAccessor = snowflakeAccessor;
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException {
+    this.resultSet = snowflakeAccessor.openResultSetSplit(resultSetChunk);
+    try {
+      this.rowCount = resultSetChunk.getRowCount();
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      String[] headers = new String[metaData.getColumnCount()];
+      for (int i = 0; i < headers.length; i++) {
+        headers[i] = metaData.getColumnName(i + 1);
+      }
+      this.row = new SnowflakeRow(headers);
+      this.values = new String[headers.length];
+      row.setValues(values);
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    try {
+      if (!resultSet.next()) {
+        return false;
+      }
+      for (int i = 0; i < values.length; i++) {
+        values[i] = resultSet.getString(i + 1);
+      }
+      rowsRead++;
+      return true;
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public SnowflakeRow getCurrentValue() {
+    return row;
+  }
+
+  @Override
+  public float getProgress() {
+    return rowCount == 0 ? 0 : Math.min(1.0f, (float) rowsRead / rowCount);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (resultSet != null) {
+      try {
+        resultSet.close();
+      } catch (SQLException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+}
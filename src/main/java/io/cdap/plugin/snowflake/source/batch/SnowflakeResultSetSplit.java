@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import net.snowflake.client.jdbc.SnowflakeResultSetSerializable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.SQLException;
+
+/**
+ * A split used for mapreduce, which holds a chunk of the query result.
+ */
+public class SnowflakeResultSetSplit extends InputSplit implements Writable {
+
+  private SnowflakeResultSetSerializable resultSetChunk;
+
+  public SnowflakeResultSetSplit() {
+    // For serialization
+  }
+
+  public SnowflakeResultSetSplit(SnowflakeResultSetSerializable resultSetChunk) {
+    this.resultSetChunk = resultSetChunk;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectStream = new ObjectOutputStream(bytes)) {
+      objectStream.writeObject(resultSetChunk);
+    }
+    out.writeInt(bytes.size());
+    out.write(bytes.toByteArray());
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    try (ObjectInputStream objectStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      resultSetChunk = (SnowflakeResultSetSerializable) objectStream.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Cannot deserialize result set chunk.", e);
+    }
+  }
+
+  @Override
+  public long getLength() throws IOException {
+    try {
+      return resultSetChunk.getCompressedDataSizeInBytes();
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public String[] getLocations() {
+    return new String[0];
+  }
+
+  public SnowflakeResultSetSerializable getResultSetChunk() {
+    return resultSetChunk;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import javax.annotation.Nullable;
+
+/**
+ * A row read from Snowflake, which values are addressed by the position of their column in the header.
+ * The same instance is reused by a record reader for all the rows of a split, so it must not be retained
+ * after the next row is read.
+ * <p>
+ * Values of a text row are character sequences formatted by the unload. Values of a typed row are already decoded into
+ * Java objects, e.g. from Parquet files.
+ */
+public class SnowflakeRow {
+
+  private final String[] headers;
+  private final boolean typed;
+  private Object[] values;
+
+  public SnowflakeRow(String[] headers) {
+    this(headers, false);
+  }
+
+  public SnowflakeRow(String[] headers, boolean typed) {
+    this.headers = headers;
+    this.typed = typed;
+    this.values = new Object[0];
+  }
+
+  /**
+   * Returns column names of the split. The same array instance is returned for all rows of a split.
+   */
+  public String[] getHeaders() {
+    return headers;
+  }
+
+  public boolean isTyped() {
+    return typed;
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  @Nullable
+  public Object get(int index) {
+    return values[index];
+  }
+
+  public void setValues(Object[] values) {
+    this.values = values;
+  }
+}
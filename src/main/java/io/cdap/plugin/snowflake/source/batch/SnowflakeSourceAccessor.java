@@ -16,34 +16,54 @@
 
 package io.cdap.plugin.snowflake.source.batch;
 
-import au.com.bytecode.opencsv.CSVReader;
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.plugin.common.KeyValueListParser;
 import io.cdap.plugin.snowflake.common.client.SnowflakeAccessor;
 import io.cdap.plugin.snowflake.common.util.QueryUtil;
 import io.cdap.plugin.snowflake.sink.batch.SnowflakeSinkAccessor;
 import net.snowflake.client.jdbc.SnowflakeConnection;
+import net.snowflake.client.jdbc.SnowflakeResultSet;
+import net.snowflake.client.jdbc.SnowflakeResultSetSerializable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 /**
  * A class which accesses Snowflake API to do actions used by batch source.
  */
 public class SnowflakeSourceAccessor extends SnowflakeAccessor {
   private static final Logger LOG = LoggerFactory.getLogger(SnowflakeSinkAccessor.class);
-  // Directory should be unique, so that parallel pipelines can run correctly, as well as after failure we don't
-  // have old stage files in the dir.
-  private static final String STAGE_PATH = "@~/cdap_stage/result" + UUID.randomUUID() + "/";
+  private static final String STAGE_PATH_PREFIX = "@~/cdap_stage/result";
   private static final String COMAND_COPY_INTO =
-    "COPY INTO " + STAGE_PATH + "data_ " +
+    "COPY INTO %sdata_ " +
       "FROM (%s) " +
       "FILE_FORMAT=(" +
       "TYPE='CSV' " +
@@ -52,13 +72,41 @@ public class SnowflakeSourceAccessor extends SnowflakeAccessor {
       "ESCAPE=NONE " +
       "ESCAPE_UNENCLOSED_FIELD=NONE " +
       "DATE_FORMAT='YYYY-MM-DD' " +
-      "TIME_FORMAT='HH24:MI:SS' " +
-      "TIMESTAMP_FORMAT='YYYY-MM-DD\"T\"HH24:MI:SSTZH:TZM' " +
+      "TIME_FORMAT='HH24:MI:SS.FF6' " +
+      "TIMESTAMP_FORMAT='YYYY-MM-DD\"T\"HH24:MI:SS.FF6TZH:TZM' " +
       "FIELD_OPTIONALLY_ENCLOSED_BY='\"' " +
       "NULL_IF='' " +
       "EMPTY_FIELD_AS_NULL=FALSE) " +
       "OVERWRITE=TRUE HEADER=TRUE SINGLE=FALSE";
+  // HEADER=TRUE makes Parquet files keep the column names of the query.
+  private static final String COMAND_COPY_INTO_PARQUET =
+    "COPY INTO %sdata_ " +
+      "FROM (%s) " +
+      "FILE_FORMAT=(" +
+      "TYPE='PARQUET' " +
+      "COMPRESSION=SNAPPY) " +
+      "OVERWRITE=TRUE HEADER=TRUE SINGLE=FALSE";
   private static final String COMMAND_MAX_FILE_SIZE = " MAX_FILE_SIZE=%s";
+  // connection arguments the driver reads from the proxy properties of a result set chunk, by lower case name.
+  // The driver matches connection arguments ignoring case, but proxy properties only by their exact names.
+  private static final Map<String, String> PROXY_PROPERTIES = Stream.of(
+    "useProxy", "proxyHost", "proxyPort", "proxyUser", "proxyPassword", "nonProxyHosts", "proxyProtocol")
+    .collect(Collectors.toMap(name -> name.toLowerCase(Locale.ROOT), name -> name));
+  // Makes result set values formatted the same way as the values unloaded by COMAND_COPY_INTO.
+  private static final String COMMAND_SET_OUTPUT_FORMATS =
+    "ALTER SESSION SET " +
+      "DATE_OUTPUT_FORMAT='YYYY-MM-DD' " +
+      "TIME_OUTPUT_FORMAT='HH24:MI:SS.FF6' " +
+      "TIMESTAMP_OUTPUT_FORMAT='YYYY-MM-DD\"T\"HH24:MI:SS.FF6TZH:TZM' " +
+      "TIMESTAMP_LTZ_OUTPUT_FORMAT='YYYY-MM-DD\"T\"HH24:MI:SS.FF6TZH:TZM' " +
+      "TIMESTAMP_NTZ_OUTPUT_FORMAT='YYYY-MM-DD\"T\"HH24:MI:SS.FF6TZH:TZM' " +
+      "TIMESTAMP_TZ_OUTPUT_FORMAT='YYYY-MM-DD\"T\"HH24:MI:SS.FF6TZH:TZM' " +
+      "BINARY_OUTPUT_FORMAT='HEX'";
+  // Same as the default MAX_FILE_SIZE of COPY INTO.
+  private static final long DEFAULT_RESULT_SET_SPLIT_SIZE = 16777216L;
+  private static final String SF_FULL_URL = "https://%s.snowflakecomputing.com";
+  // partitions beyond this number are unloaded once one of the running statements completes
+  private static final int MAX_CONCURRENT_UNLOADS = 8;
   private final SnowflakeBatchSourceConfig config;
 
   public SnowflakeSourceAccessor(SnowflakeBatchSourceConfig config) {
@@ -66,59 +114,323 @@ public class SnowflakeSourceAccessor extends SnowflakeAccessor {
     this.config = config;
   }
 
+  /**
+   * Generates a stage directory for a single run.
+   * Directory should be unique, so that parallel pipelines can run correctly, as well as after failure we don't
+   * have old stage files in the dir.
+   *
+   * @return path of the directory in the user stage.
+   */
+  public static String generateStagePath() {
+    return STAGE_PATH_PREFIX + UUID.randomUUID() + "/";
+  }
+
   /**
    * Copies query data into staged files and returns their paths.
+   * If a partition column is configured, ranges of the column are unloaded concurrently, each into its own
+   * sub directory of the stage path.
    *
-   * @return List of file paths in Snowflake stage.
+   * @param importQuery query to unload, may differ from the configured one, e.g. if only some columns are read.
+   * @param stagePath directory in the user stage to unload the files into.
+   * @return List of splits, one for each file in Snowflake stage.
    * @throws IOException thrown if there are any issue with the I/O operations.
    */
-  public List<String> prepareStageSplits() throws IOException {
-    LOG.info("Loading data into stage: '{}'", STAGE_PATH);
-    String copy = String.format(COMAND_COPY_INTO, QueryUtil.removeSemicolon(config.getImportQuery()));
+  public List<SnowflakeSplit> prepareStageSplits(String importQuery, String stagePath) throws IOException {
+    LOG.info("Loading data into stage: '{}'", stagePath);
+    List<String> copyStatements = getCopyStatements(importQuery, stagePath);
+    if (copyStatements.size() == 1) {
+      runSQL(copyStatements.get(0));
+    } else {
+      runConcurrently(copyStatements);
+    }
+
+    List<SnowflakeSplit> stageSplits = new ArrayList<>();
+    try (Connection connection = getConnection();
+         PreparedStatement listStmt = connection.prepareStatement("list " + stagePath);
+         ResultSet resultSet = listStmt.executeQuery()) {
+      while (resultSet.next()) {
+        stageSplits.add(new SnowflakeSplit(resultSet.getString("name"), resultSet.getLong("size")));
+      }
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+    return stageSplits;
+  }
+
+  private List<String> getCopyStatements(String importQuery, String stagePath) throws IOException {
+    String partitionColumn = config.getPartitionColumn();
+    List<String> rangeQueries = partitionColumn == null || config.getNumPartitions() <= 1
+      ? Collections.emptyList()
+      : getRangeQueries(importQuery, partitionColumn);
+    if (rangeQueries.isEmpty()) {
+      return Collections.singletonList(getCopyStatement(importQuery, stagePath));
+    }
+
+    List<String> copyStatements = new ArrayList<>();
+    for (int i = 0; i < rangeQueries.size(); i++) {
+      copyStatements.add(getCopyStatement(rangeQueries.get(i), stagePath + "part_" + i + "/"));
+    }
+    return copyStatements;
+  }
+
+  private String getCopyStatement(String importQuery, String stagePath) {
+    String copyCommand = config.getUnloadFormat() == UnloadFormat.PARQUET ? COMAND_COPY_INTO_PARQUET : COMAND_COPY_INTO;
+    String copy = String.format(copyCommand, stagePath, QueryUtil.removeSemicolon(importQuery));
     if (config.getMaxSplitSize() > 0) {
       copy = copy + String.format(COMMAND_MAX_FILE_SIZE, config.getMaxSplitSize());
     }
-    List<String> stageSplits = new ArrayList<>();
-    try (Connection connection = dataSource.getConnection();
-         PreparedStatement copyStmt = connection.prepareStatement(copy);
-         PreparedStatement listStmt = connection.prepareStatement("list " + STAGE_PATH)) {
-      copyStmt.execute();
-      try (ResultSet resultSet = listStmt.executeQuery()) {
-        while (resultSet.next()) {
-          String name = resultSet.getString("name");
-          stageSplits.add(name);
+    return copy;
+  }
+
+  /**
+   * Splits import query by ranges of the partition column values. Returns an empty list if the column has no values.
+   */
+  private List<String> getRangeQueries(String importQuery, String partitionColumn) throws IOException {
+    try (Connection connection = getConnection();
+         PreparedStatement boundsStmt = connection.prepareStatement(QueryUtil.boundsQuery(importQuery,
+                                                                                          partitionColumn));
+         ResultSet resultSet = boundsStmt.executeQuery()) {
+      resultSet.next();
+      // bounds are integers, also for columns with a scale, and may exceed the range of long
+      BigDecimal min = resultSet.getBigDecimal(1);
+      if (min == null) {
+        return Collections.emptyList();
+      }
+      BigDecimal max = resultSet.getBigDecimal(2);
+      LOG.info("Unloading values of '{}' from {} to {} in {} partitions", partitionColumn, min, max,
+               config.getNumPartitions());
+      return QueryUtil.rangeQueries(importQuery, partitionColumn, min.toBigIntegerExact(), max.toBigIntegerExact(),
+                                    config.getNumPartitions());
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Runs each statement on a connection of its own, a few of them at a time, and waits until all of them complete.
+   * If one of the statements fails, the running ones are cancelled in Snowflake and the rest are not started.
+   */
+  private void runConcurrently(List<String> statements) throws IOException {
+    int threadCount = Math.min(statements.size(), MAX_CONCURRENT_UNLOADS);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+      Thread thread = new Thread(runnable, "snowflake-partitioned-unload");
+      thread.setDaemon(true);
+      return thread;
+    });
+    RunningStatements runningStatements = new RunningStatements();
+    boolean completed = false;
+    try {
+      List<Future<?>> futures = statements.stream()
+        .map(statement -> executor.submit(() -> {
+          runCancellable(statement, runningStatements);
+          return null;
+        }))
+        .collect(Collectors.toList());
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      completed = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while unloading partitions");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    } finally {
+      if (!completed) {
+        // interrupting a thread does not stop its statement in Snowflake, which would keep writing to the stage
+        runningStatements.cancelAll();
+      }
+      executor.shutdownNow();
+    }
+  }
+
+  private void runCancellable(String query, RunningStatements runningStatements) throws IOException {
+    try (Connection connection = getConnection();
+         PreparedStatement statement = connection.prepareStatement(query)) {
+      if (!runningStatements.add(statement)) {
+        return;
+      }
+      try {
+        statement.execute();
+      } finally {
+        runningStatements.remove(statement);
+      }
+    } catch (SQLException e) {
+      throw new IOException(String.format("Statement '%s' failed due to '%s'", query, e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Returns the maximum value of the column in the import query result, formatted the same way as the values
+   * read by the source.
+   *
+   * @param importQuery query to get the value from.
+   * @param column column of the query result.
+   * @return maximum value, or null if the column has no values.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  @Nullable
+  public String getMaxValue(String importQuery, String column) throws IOException {
+    // output formats are set for the session, so it is not shared through the connection pool
+    try (Connection connection = openSessionConnection();
+         PreparedStatement formatStmt = connection.prepareStatement(COMMAND_SET_OUTPUT_FORMATS);
+         PreparedStatement maxStmt = connection.prepareStatement(QueryUtil.maxQuery(importQuery, column))) {
+      formatStmt.execute();
+      try (ResultSet resultSet = maxStmt.executeQuery()) {
+        resultSet.next();
+        return resultSet.getString(1);
+      }
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Executes the import query without fetching its result. Snowflake persists the result for a day, so that
+   * it can be read again by the returned query ID, e.g. with {@link QueryUtil#resultScanQuery(String)}.
+   *
+   * @param importQuery query to execute.
+   * @return ID of the executed query.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  public String executeQuery(String importQuery) throws IOException {
+    try (Connection connection = getConnection();
+         PreparedStatement queryStmt = connection.prepareStatement(QueryUtil.removeSemicolon(importQuery));
+         ResultSet resultSet = queryStmt.executeQuery()) {
+      return resultSet.unwrap(SnowflakeResultSet.class).getQueryID();
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Executes the import query and splits its result into chunks, which can be fetched independently
+   * of the connection used to execute the query.
+   *
+   * @param importQuery query to execute, may differ from the configured one, e.g. if only some columns are read.
+   * @return List of serializable result set chunks.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  public List<SnowflakeResultSetSerializable> prepareResultSetSplits(String importQuery) throws IOException {
+    String query = QueryUtil.removeSemicolon(importQuery);
+    long maxSplitSize = config.getMaxSplitSize() > 0 ? config.getMaxSplitSize() : DEFAULT_RESULT_SET_SPLIT_SIZE;
+    LOG.info("Splitting query result into chunks of maximum {} bytes", maxSplitSize);
+    // output formats are set for the session, so it is not shared through the connection pool
+    try (Connection connection = openSessionConnection();
+         PreparedStatement formatStmt = connection.prepareStatement(COMMAND_SET_OUTPUT_FORMATS);
+         PreparedStatement queryStmt = connection.prepareStatement(query)) {
+      formatStmt.execute();
+      try (ResultSet resultSet = queryStmt.executeQuery()) {
+        return resultSet.unwrap(SnowflakeResultSet.class).getResultSetSerializables(maxSplitSize);
+      }
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Opens a result set for the chunk of the query result. No Snowflake session is created for this.
+   *
+   * @param resultSetSplit chunk of the query result created by {@link #prepareResultSetSplits(String)}.
+   * @return ResultSet.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  public ResultSet openResultSetSplit(SnowflakeResultSetSerializable resultSetSplit) throws IOException {
+    Properties properties = new Properties();
+    String connectionArguments = config.getConnectionArguments();
+    if (!Strings.isNullOrEmpty(connectionArguments)) {
+      for (KeyValue<String, String> argument : KeyValueListParser.DEFAULT.parse(connectionArguments)) {
+        // other arguments, e.g. credentials, are not needed to fetch the chunk
+        String proxyProperty = PROXY_PROPERTIES.get(argument.getKey().toLowerCase(Locale.ROOT));
+        if (proxyProperty != null) {
+          properties.setProperty(proxyProperty, argument.getValue());
         }
       }
+    }
+
+    try {
+      return resultSetSplit.getResultSet(
+        SnowflakeResultSetSerializable.ResultSetRetrieveConfig.Builder.newInstance()
+          .setProxyProperties(properties)
+          .setSfFullURL(String.format(SF_FULL_URL, config.getAccountName()))
+          .build());
     } catch (SQLException e) {
       throw new IOException(e);
     }
-    return stageSplits;
   }
 
   /**
-   * Remove a file from stage.
-   * @param stageSplit  path to file in Snowflake stage.
-   * @throws IOException hrown if there are any issue with the I/O operations.
+   * Remove all the files of a run from stage with a single statement.
+   * @param stagePath  directory in the user stage the files were unloaded into.
+   * @throws IOException thrown if there are any issue with the I/O operations.
    */
-  public void removeStageFile(String stageSplit) throws IOException {
-    runSQL(String.format("remove @~/%s", stageSplit));
+  public void removeStage(String stagePath) throws IOException {
+    runSQL(String.format("remove %s", stagePath));
   }
 
   /**
-   * Build CSVReader for specified stage split file.
+   * Downloads specified stage split file as is into a local file.
    *
    * @param stageSplit path to file in Snowflake stage.
-   * @return CSVReader.
+   * @param destination local file to write to, replaced if exists.
    * @throws IOException thrown if there are any issue with the I/O operations.
    */
-  public CSVReader buildCsvReader(String stageSplit) throws IOException {
-    try (Connection connection = dataSource.getConnection()) {
-      InputStream downloadStream = connection.unwrap(SnowflakeConnection.class)
-        .downloadStream("@~", stageSplit, true);
-      InputStreamReader inputStreamReader = new InputStreamReader(downloadStream);
-      return new CSVReader(inputStreamReader);
+  public void downloadStageFile(String stageSplit, Path destination) throws IOException {
+    try (InputStream downloadStream = openStageFile(stageSplit)) {
+      Files.copy(downloadStream, destination, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Opens a stream of the specified stage split file, as it is stored in the stage.
+   *
+   * @param stageSplit path to file in Snowflake stage.
+   * @return stream of the file, without decompressing it.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  public InputStream openStageFile(String stageSplit) throws IOException {
+    try (Connection connection = getTransferConnection()) {
+      return connection.unwrap(SnowflakeConnection.class).downloadStream("@~", stageSplit, false);
     } catch (SQLException e) {
       throw new IOException(e);
     }
   }
+
+  /**
+   * Statements running concurrently, which are cancelled together once one of them fails.
+   */
+  private static class RunningStatements {
+    private final Set<Statement> statements = new HashSet<>();
+    private boolean cancelled;
+
+    /**
+     * Registers a statement before it is executed.
+     *
+     * @return false if the statements are already cancelled, so the statement must not be executed.
+     */
+    synchronized boolean add(Statement statement) {
+      if (cancelled) {
+        return false;
+      }
+      statements.add(statement);
+      return true;
+    }
+
+    synchronized void remove(Statement statement) {
+      statements.remove(statement);
+    }
+
+    synchronized void cancelAll() {
+      cancelled = true;
+      for (Statement statement : statements) {
+        try {
+          statement.cancel();
+        } catch (SQLException e) {
+          LOG.warn("Failed to cancel statement", e);
+        }
+      }
+      statements.clear();
+    }
+  }
 }
@@ -22,35 +22,54 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * A split used for mapreduce.
+ * A split used for mapreduce. Reads one or several files from Snowflake stage one after another.
  */
 public class SnowflakeSplit extends InputSplit implements Writable {
 
-  private String stageSplit;
+  private List<String> stageFiles;
+  private long length;
 
   public SnowflakeSplit() {
     // For serialization
   }
 
-  public SnowflakeSplit(String stageSplit) {
-    this.stageSplit = stageSplit;
+  public SnowflakeSplit(String stageSplit, long length) {
+    this(Collections.singletonList(stageSplit), length);
+  }
+
+  public SnowflakeSplit(List<String> stageFiles, long length) {
+    this.stageFiles = stageFiles;
+    this.length = length;
   }
 
   @Override
   public void write(DataOutput out) throws IOException {
-    out.writeUTF(stageSplit);
+    out.writeInt(stageFiles.size());
+    for (String stageFile : stageFiles) {
+      out.writeUTF(stageFile);
+    }
+    out.writeLong(length);
   }
 
   @Override
   public void readFields(DataInput in) throws IOException {
-    stageSplit = in.readUTF();
+    int size = in.readInt();
+    stageFiles = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      stageFiles.add(in.readUTF());
+    }
+    length = in.readLong();
   }
 
   @Override
   public long getLength() {
-    return 0;
+    // compressed size of the stage files
+    return length;
   }
 
   @Override
@@ -58,7 +77,14 @@ public class SnowflakeSplit extends InputSplit implements Writable {
     return new String[0];
   }
 
+  /**
+   * Returns the path of the first stage file, which is the only one unless the split was combined.
+   */
   public String getStageSplit() {
-    return stageSplit;
+    return stageFiles.get(0);
+  }
+
+  public List<String> getStageFiles() {
+    return stageFiles;
   }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+
+/**
+ * RecordReader implementation, which converts rows read by another reader into records of the output schema.
+ */
+public class SnowflakeStructuredRecordReader extends RecordReader<NullWritable, StructuredRecord> {
+
+  private final RecordReader<NullWritable, SnowflakeRow> rowReader;
+  private final SnowflakeMapToRecordTransformer transformer;
+
+  public SnowflakeStructuredRecordReader(RecordReader<NullWritable, SnowflakeRow> rowReader,
+                                         SnowflakeMapToRecordTransformer transformer) {
+    this.rowReader = rowReader;
+    this.transformer = transformer;
+  }
+
+  @Override
+  public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+    rowReader.initialize(inputSplit, context);
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    return rowReader.nextKeyValue();
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord getCurrentValue() throws IOException, InterruptedException {
+    return transformer.transform(rowReader.getCurrentValue());
+  }
+
+  @Override
+  public float getProgress() throws IOException, InterruptedException {
+    return rowReader.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    rowReader.close();
+  }
+}
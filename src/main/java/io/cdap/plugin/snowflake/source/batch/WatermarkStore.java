@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the high-water marks of incremental reads between pipeline runs.
+ */
+public interface WatermarkStore {
+
+  /**
+   * Returns the key the watermark of an incremental read is kept under.
+   * The key changes with the watermark column and the import query, so that a watermark is never applied to a
+   * different column or query than the one it was read from.
+   *
+   * @param referenceName reference name of the source.
+   * @param column watermark column.
+   * @param importQuery import query, as configured.
+   * @return key of the watermark.
+   */
+  static String getKey(String referenceName, String column, String importQuery) {
+    // the query may be long and contain any characters, so only its hash is part of the key
+    String queryHash = Hashing.sha256().hashString(importQuery, StandardCharsets.UTF_8).toString();
+    return String.format("%s.%s.%s", referenceName, column, queryHash);
+  }
+
+  /**
+   * Returns the last committed watermark.
+   *
+   * @param key identifies the incrementally read data.
+   * @return watermark, or null if none was committed yet.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  @Nullable
+  String getWatermark(String key) throws IOException;
+
+  /**
+   * Commits a new watermark, replacing the previous one.
+   *
+   * @param key identifies the incrementally read data.
+   * @param watermark maximum value of the watermark column read so far.
+   * @throws IOException thrown if there are any issue with the I/O operations.
+   */
+  void putWatermark(String key, String watermark) throws IOException;
+}
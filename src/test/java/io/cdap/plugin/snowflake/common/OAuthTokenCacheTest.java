@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common;
+
+import io.cdap.plugin.snowflake.source.batch.SnowflakeBatchSourceConfig;
+import io.cdap.plugin.snowflake.source.batch.SnowflakeBatchSourceConfigBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link OAuthTokenCache}
+ */
+public class OAuthTokenCacheTest {
+
+  private static final SnowflakeBatchSourceConfig CONFIG =
+    new SnowflakeBatchSourceConfigBuilder(SnowflakeBatchSourceConfigBuilder.CONFIG)
+      .setOauth2Enabled(true)
+      .setClientId("client")
+      .setClientSecret("secret")
+      .setRefreshToken("refresh")
+      .build();
+
+  @Test
+  public void testTokenIsReused() {
+    AtomicInteger requests = new AtomicInteger();
+    OAuthTokenCache cache = new OAuthTokenCache(
+      config -> new OAuthUtil.AccessToken("token" + requests.incrementAndGet(), 600));
+
+    Assert.assertEquals("token1", cache.getAccessToken(CONFIG));
+    Assert.assertEquals("token1", cache.getAccessToken(CONFIG));
+    Assert.assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void testExpiredTokenIsRequestedAgain() {
+    AtomicInteger requests = new AtomicInteger();
+    // tokens expiring within the margin are never used twice
+    OAuthTokenCache cache = new OAuthTokenCache(
+      config -> new OAuthUtil.AccessToken("token" + requests.incrementAndGet(), 10));
+
+    Assert.assertEquals("token1", cache.getAccessToken(CONFIG));
+    Assert.assertEquals("token2", cache.getAccessToken(CONFIG));
+  }
+
+  @Test
+  public void testTokensAreCachedPerClient() {
+    AtomicInteger requests = new AtomicInteger();
+    OAuthTokenCache cache = new OAuthTokenCache(
+      config -> new OAuthUtil.AccessToken(config.getClientId() + requests.incrementAndGet(), 600));
+    SnowflakeBatchSourceConfig otherClient =
+      new SnowflakeBatchSourceConfigBuilder(CONFIG)
+        .setClientId("other")
+        .build();
+
+    Assert.assertEquals("client1", cache.getAccessToken(CONFIG));
+    Assert.assertEquals("other2", cache.getAccessToken(otherClient));
+    Assert.assertEquals("client1", cache.getAccessToken(CONFIG));
+  }
+
+  @Test
+  public void testConcurrentCallersShareRequest() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    CountDownLatch requested = new CountDownLatch(1);
+    CountDownLatch respond = new CountDownLatch(1);
+    OAuthTokenCache cache = new OAuthTokenCache(config -> {
+      if ("other".equals(config.getClientId())) {
+        return new OAuthUtil.AccessToken("other", 600);
+      }
+      requests.incrementAndGet();
+      requested.countDown();
+      try {
+        respond.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return new OAuthUtil.AccessToken("token" + requests.get(), 600);
+    });
+    SnowflakeBatchSourceConfig otherClient =
+      new SnowflakeBatchSourceConfigBuilder(CONFIG)
+        .setClientId("other")
+        .build();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = executor.submit(() -> cache.getAccessToken(CONFIG));
+      Assert.assertTrue(requested.await(10, TimeUnit.SECONDS));
+      Future<String> second = executor.submit(() -> cache.getAccessToken(CONFIG));
+
+      // a pending request does not block tokens of other clients
+      Assert.assertEquals("other", cache.getAccessToken(otherClient));
+
+      respond.countDown();
+      Assert.assertEquals("token1", first.get(10, TimeUnit.SECONDS));
+      Assert.assertEquals("token1", second.get(10, TimeUnit.SECONDS));
+      Assert.assertEquals(1, requests.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -19,6 +19,7 @@ package io.cdap.plugin.snowflake.common.client;
 import io.cdap.plugin.snowflake.Constants;
 import io.cdap.plugin.snowflake.common.BaseSnowflakeTest;
 import io.cdap.plugin.snowflake.source.batch.SnowflakeSourceAccessor;
+import io.cdap.plugin.snowflake.source.batch.SnowflakeSplit;
 import org.junit.Assert;
 import org.junit.Test;
 import java.util.Arrays;
@@ -49,13 +50,13 @@ public class SnowflakeAccessorTest extends BaseSnowflakeTest {
   @Test
   public void testDescribeQuery() throws Exception {
     List<SnowflakeFieldDescriptor> expected = Arrays.asList(
-      new SnowflakeFieldDescriptor("COLUMN_NUMBER", -5, true),
-      new SnowflakeFieldDescriptor("COLUMN_DECIMAL", -5, true),
-      new SnowflakeFieldDescriptor("COLUMN_NUMERIC", -5, true),
-      new SnowflakeFieldDescriptor("COLUMN_INT", -5, true),
-      new SnowflakeFieldDescriptor("COLUMN_INTEGER", -5, true),
-      new SnowflakeFieldDescriptor("COLUMN_BIGINT", -5, true),
-      new SnowflakeFieldDescriptor("COLUMN_SMALLINT", -5, true),
+      new SnowflakeFieldDescriptor("COLUMN_NUMBER", -5, true, 38, 0),
+      new SnowflakeFieldDescriptor("COLUMN_DECIMAL", -5, true, 38, 0),
+      new SnowflakeFieldDescriptor("COLUMN_NUMERIC", -5, true, 38, 0),
+      new SnowflakeFieldDescriptor("COLUMN_INT", -5, true, 38, 0),
+      new SnowflakeFieldDescriptor("COLUMN_INTEGER", -5, true, 38, 0),
+      new SnowflakeFieldDescriptor("COLUMN_BIGINT", -5, true, 38, 0),
+      new SnowflakeFieldDescriptor("COLUMN_SMALLINT", -5, true, 38, 0),
       new SnowflakeFieldDescriptor("COLUMN_FLOAT", 8, true),
       new SnowflakeFieldDescriptor("COLUMN_FLOAT4", 8, true),
       new SnowflakeFieldDescriptor("COLUMN_FLOAT8", 8, true),
@@ -92,10 +93,14 @@ public class SnowflakeAccessorTest extends BaseSnowflakeTest {
   public void testPrepareStageSplits() throws Exception {
     Pattern expected = Pattern.compile("cdap_stage/result.*data__0_0_0\\.csv\\.gz");
 
-    List<String> actual = snowflakeAccessor.prepareStageSplits();
+    String stagePath = SnowflakeSourceAccessor.generateStagePath();
+
+    List<SnowflakeSplit> actual = snowflakeAccessor.prepareStageSplits(CONFIG.getImportQuery(), stagePath);
+    snowflakeAccessor.removeStage(stagePath);
 
     Assert.assertNotNull(actual);
     Assert.assertEquals(1, actual.size());
-    Assert.assertTrue(expected.matcher(actual.get(0)).matches());
+    Assert.assertTrue(expected.matcher(actual.get(0).getStageSplit()).matches());
+    Assert.assertTrue(actual.get(0).getLength() > 0);
   }
 }
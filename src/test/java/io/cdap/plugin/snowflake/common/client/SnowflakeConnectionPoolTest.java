@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.client;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SnowflakeConnectionPool}
+ */
+public class SnowflakeConnectionPoolTest {
+
+  private static final String KEY = "key";
+
+  @Test
+  public void testConnectionIsReused() throws SQLException {
+    SnowflakeConnectionPool pool = new SnowflakeConnectionPool(2, 2, 60000, 60000);
+    Connection physical = Mockito.mock(Connection.class);
+
+    Connection first = pool.getConnection(KEY, () -> physical);
+    first.close();
+    Assert.assertTrue(first.isClosed());
+    Assert.assertEquals(1, pool.getIdleCount(KEY));
+
+    Connection second = pool.getConnection(KEY, () -> {
+      throw new AssertionError("Idle connection must be reused");
+    });
+    second.getMetaData();
+    second.close();
+
+    Mockito.verify(physical).getMetaData();
+    Mockito.verify(physical, Mockito.never()).close();
+    pool.clear();
+    Mockito.verify(physical).close();
+  }
+
+  @Test
+  public void testIdleConnectionsAreBounded() throws SQLException {
+    SnowflakeConnectionPool pool = new SnowflakeConnectionPool(1, 2, 60000, 60000);
+    Connection physical1 = Mockito.mock(Connection.class);
+    Connection physical2 = Mockito.mock(Connection.class);
+
+    Connection first = pool.getConnection(KEY, () -> physical1);
+    Connection second = pool.getConnection(KEY, () -> physical2);
+    first.close();
+    second.close();
+
+    Assert.assertEquals(1, pool.getIdleCount(KEY));
+    Mockito.verify(physical1, Mockito.never()).close();
+    Mockito.verify(physical2).close();
+    pool.clear();
+  }
+
+  @Test
+  public void testExpiredConnectionsAreEvicted() throws SQLException {
+    SnowflakeConnectionPool pool = new SnowflakeConnectionPool(2, 2, -1, 60000);
+    Connection physical = Mockito.mock(Connection.class);
+
+    pool.getConnection(KEY, () -> physical).close();
+    pool.evictExpired();
+
+    Assert.assertEquals(0, pool.getIdleCount(KEY));
+    Mockito.verify(physical).close();
+  }
+
+  @Test
+  public void testClosedConnectionIsNotReused() throws SQLException {
+    SnowflakeConnectionPool pool = new SnowflakeConnectionPool(2, 2, 60000, 60000);
+    Connection broken = Mockito.mock(Connection.class);
+    Connection physical = Mockito.mock(Connection.class);
+
+    pool.getConnection(KEY, () -> broken).close();
+    Mockito.when(broken.isClosed()).thenReturn(true);
+
+    Connection connection = pool.getConnection(KEY, () -> physical);
+    connection.getMetaData();
+
+    Mockito.verify(physical).getMetaData();
+    Mockito.verify(broken, Mockito.never()).getMetaData();
+    pool.clear();
+  }
+
+  @Test
+  public void testBorrowedConnectionsAreBounded() throws Exception {
+    SnowflakeConnectionPool pool = new SnowflakeConnectionPool(2, 1, 60000, 60000);
+    Connection physical = Mockito.mock(Connection.class);
+
+    Connection first = pool.getConnection(KEY, () -> physical);
+    CountDownLatch borrowed = new CountDownLatch(1);
+    Thread waiting = new Thread(() -> {
+      try {
+        pool.getConnection(KEY, () -> {
+          throw new AssertionError("Returned connection must be reused");
+        }).close();
+        borrowed.countDown();
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    waiting.start();
+
+    Assert.assertFalse(borrowed.await(200, TimeUnit.MILLISECONDS));
+    first.close();
+    Assert.assertTrue(borrowed.await(10, TimeUnit.SECONDS));
+    waiting.join();
+    pool.clear();
+  }
+
+  @Test
+  public void testBorrowTimesOut() throws SQLException {
+    SnowflakeConnectionPool pool = new SnowflakeConnectionPool(2, 1, 60000, 100);
+    Connection physical = Mockito.mock(Connection.class);
+
+    Connection first = pool.getConnection(KEY, () -> physical);
+    try {
+      pool.getConnection(KEY, () -> physical);
+      Assert.fail("Borrowing over the limit must time out");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    // a failed attempt does not take a connection from the limit
+    first.close();
+    pool.getConnection(KEY, () -> physical).close();
+    pool.clear();
+  }
+
+  @Test
+  public void testTransferConnectionsAreNotBounded() throws SQLException {
+    SnowflakeConnectionPool pool = new SnowflakeConnectionPool(2, 1, 60000, 100);
+    Connection physical = Mockito.mock(Connection.class);
+
+    // a transfer does not wait for the borrowed statement connection
+    Connection statement = pool.getConnection(KEY, () -> physical);
+    Connection transfer = pool.getTransferConnection(KEY, () -> physical);
+    try {
+      pool.getConnection(KEY, () -> physical);
+      Assert.fail("Borrowing statement connections over the limit must time out");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    // returned transfer connections are reused, also by statements
+    transfer.close();
+    statement.close();
+    Assert.assertEquals(2, pool.getIdleCount(KEY));
+    pool.getConnection(KEY, () -> physical).close();
+    pool.clear();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Tests for {@link DateTimeUtil}
+ */
+public class DateTimeUtilTest {
+
+  @Test
+  public void testParseEpochDay() {
+    String[] dates = {"1970-01-01", "2019-01-01", "2020-02-29", "1969-12-31", "1900-03-01", "0001-01-01",
+      "9999-12-31", "-0044-03-15", "+10000-01-01"};
+    for (String date : dates) {
+      Assert.assertEquals(date, LocalDate.parse(date).toEpochDay(), DateTimeUtil.parseEpochDay(date));
+    }
+  }
+
+  @Test
+  public void testParseTimeMicros() {
+    Assert.assertEquals(0, DateTimeUtil.parseTimeMicros("00:00:00"));
+    Assert.assertEquals(LocalTime.parse("01:01:01").toNanoOfDay() / 1000,
+                        DateTimeUtil.parseTimeMicros("01:01:01"));
+    Assert.assertEquals(LocalTime.parse("23:59:59.999999").toNanoOfDay() / 1000,
+                        DateTimeUtil.parseTimeMicros("23:59:59.999999"));
+    Assert.assertEquals(LocalTime.parse("12:30:00.5").toNanoOfDay() / 1000,
+                        DateTimeUtil.parseTimeMicros("12:30:00.5"));
+    // precision beyond microseconds is truncated
+    Assert.assertEquals(LocalTime.parse("12:30:00.123456").toNanoOfDay() / 1000,
+                        DateTimeUtil.parseTimeMicros("12:30:00.123456789"));
+  }
+
+  @Test
+  public void testParseTimestampMicros() {
+    String[] timestamps = {"2019-01-01T01:01:01+00:00", "2019-01-01T01:01:01.123456+00:00",
+      "2019-06-30T23:59:59.000001-07:00", "1969-12-31T23:59:59.999999+05:30", "1900-01-01T00:00:00Z",
+      "2020-02-29T12:00:00.1+14:00"};
+    for (String timestamp : timestamps) {
+      OffsetDateTime expected = OffsetDateTime.parse(timestamp);
+      long expectedMicros = ChronoUnit.MICROS.between(OffsetDateTime.parse("1970-01-01T00:00:00Z"), expected);
+      Assert.assertEquals(timestamp, expectedMicros, DateTimeUtil.parseTimestampMicros(timestamp));
+    }
+  }
+
+  @Test
+  public void testInvalidValues() {
+    String[] dates = {"", "2019-1-01", "2019-13-01", "2019-02-29", "2019-01-01T", "19-01-01", "2019/01/01"};
+    for (String date : dates) {
+      assertInvalid(() -> DateTimeUtil.parseEpochDay(date));
+    }
+    String[] times = {"", "1:01:01", "24:00:00", "01:60:00", "01:01:01.", "01-01-01", "01:01:01+00:00"};
+    for (String time : times) {
+      assertInvalid(() -> DateTimeUtil.parseTimeMicros(time));
+    }
+    String[] timestamps = {"2019-01-01", "2019-01-01T01:01:01", "2019-01-01 01:01:01+00:00",
+      "2019-01-01T01:01:01+0000", "2019-01-01T01:01:01+00:00:00", "2019-01-01T01:01:01X"};
+    for (String timestamp : timestamps) {
+      assertInvalid(() -> DateTimeUtil.parseTimestampMicros(timestamp));
+    }
+  }
+
+  private static void assertInvalid(Runnable parse) {
+    try {
+      parse.run();
+      Assert.fail("Expected DateTimeParseException");
+    } catch (DateTimeParseException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Tests for {@link DecimalUtil}
+ */
+public class DecimalUtilTest {
+
+  @Test
+  public void testToUnscaledBytes() {
+    String[] values = {"0", "-0", "1", "-1", "127", "128", "-128", "-129", "1.", ".5", "-0.001", "1.10",
+      "123456789012345678", "-123456789.123456789", "1234567890123456789", "99999999999999999999999.99",
+      "00000000000000000000001", "12.3400000000000000000000", "1e3", "+1.0"};
+    for (String value : values) {
+      for (int scale = 0; scale <= 10; scale++) {
+        BigDecimal decimal = new BigDecimal(value);
+        if (decimal.scale() > scale && decimal.stripTrailingZeros().scale() > scale) {
+          continue;
+        }
+        Assert.assertArrayEquals(value + " with scale " + scale,
+                                 decimal.setScale(scale).unscaledValue().toByteArray(),
+                                 DecimalUtil.toUnscaledBytes(value, scale));
+      }
+    }
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testRoundingIsNotAllowed() {
+    DecimalUtil.toUnscaledBytes("1.15", 1);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testInvalidValue() {
+    DecimalUtil.toUnscaledBytes("1.2.3", 2);
+  }
+
+  @Test
+  public void testToByteArray() {
+    long[] values = {0, 1, -1, 127, 128, -128, -129, 255, -256, 65535, Long.MAX_VALUE, Long.MIN_VALUE};
+    for (long value : values) {
+      Assert.assertArrayEquals(String.valueOf(value), BigInteger.valueOf(value).toByteArray(),
+                               DecimalUtil.toByteArray(value));
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.common.util;
+
+import io.cdap.plugin.snowflake.source.batch.ReadMode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EnumUtil}
+ */
+public class EnumUtilTest {
+
+  @Test
+  public void testGetEnumValue() {
+    Assert.assertEquals(ReadMode.RESULT_SET, EnumUtil.getEnumValue(ReadMode.class, "result set", ReadMode.STAGE));
+    Assert.assertEquals(ReadMode.STAGE, EnumUtil.getEnumValue(ReadMode.class, null, ReadMode.STAGE));
+    Assert.assertEquals(ReadMode.STAGE, EnumUtil.getEnumValue(ReadMode.class, "unknown", ReadMode.STAGE));
+  }
+
+  @Test
+  public void testIsValidEnumValue() {
+    Assert.assertTrue(EnumUtil.isValidEnumValue(ReadMode.class, "Result Set"));
+    Assert.assertTrue(EnumUtil.isValidEnumValue(ReadMode.class, ""));
+    Assert.assertFalse(EnumUtil.isValidEnumValue(ReadMode.class, "unknown"));
+  }
+}
@@ -19,6 +19,10 @@ package io.cdap.plugin.snowflake.common.util;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Tests for {@link QueryUtil}
  */
@@ -47,97 +51,102 @@ public class QueryUtilTest {
   }
 
   @Test
-  public void testLimitQuery() {
-    String expected = "select * from table limit 5";
+  public void testProjectQuery() {
+    String expected = "SELECT \"ID\", \"mixedCase\", \"with\"\"quote\" FROM (select * from table)";
 
-    String query = "select * from table";
+    String query = "select * from table;";
 
-    String actual = QueryUtil.limitQuery(query, 5);
+    String actual = QueryUtil.projectQuery(query, Arrays.asList("ID", "mixedCase", "with\"quote"));
 
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 
   @Test
-  public void testLimitQuerySemicolon() {
-    String expected = "select * from table limit 5";
+  public void testBoundsQuery() {
+    String expected = "SELECT FLOOR(MIN(\"ID\")), CEIL(MAX(\"ID\")) FROM (select * from table)";
 
-    String query = "select * from table;";
-
-    String actual = QueryUtil.limitQuery(query, 5);
+    String actual = QueryUtil.boundsQuery("select * from table;", "ID");
 
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 
   @Test
-  public void testLimitQueryWithLimit() {
-    String expected = "select * from table limit 5";
+  public void testRangeQueries() {
+    List<String> expected = Arrays.asList(
+      "SELECT * FROM (select * from table) WHERE (\"ID\" >= 1 AND \"ID\" < 4) OR \"ID\" IS NULL",
+      "SELECT * FROM (select * from table) WHERE \"ID\" >= 4 AND \"ID\" < 7",
+      "SELECT * FROM (select * from table) WHERE \"ID\" >= 7 AND \"ID\" < 11");
 
-    String query = "select * from table limit 10";
+    List<String> actual = QueryUtil.rangeQueries("select * from table", "ID", BigInteger.valueOf(1),
+                                                 BigInteger.valueOf(10), 3);
 
-    String actual = QueryUtil.limitQuery(query, 5);
-
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 
   @Test
-  public void testLimitQueryWithLimitSemicolon() {
-    String expected = "select * from table limit 5";
+  public void testRangeQueriesFewerValues() {
+    List<String> actual = QueryUtil.rangeQueries("select * from table", "ID", BigInteger.valueOf(5),
+                                                 BigInteger.valueOf(6), 4);
+
+    Assert.assertEquals(2, actual.size());
+  }
 
-    String query = "select * from table limit 10;";
+  @Test
+  public void testRangeQueriesFullRange() {
+    List<String> expected = Arrays.asList(
+      "SELECT * FROM (select * from table) WHERE (\"ID\" >= -9223372036854775808 AND \"ID\" < 0) OR \"ID\" IS NULL",
+      "SELECT * FROM (select * from table) WHERE \"ID\" >= 0 AND \"ID\" < 9223372036854775808");
 
-    String actual = QueryUtil.limitQuery(query, 5);
+    List<String> actual = QueryUtil.rangeQueries("select * from table", "ID", BigInteger.valueOf(Long.MIN_VALUE),
+                                                 BigInteger.valueOf(Long.MAX_VALUE), 2);
 
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 
   @Test
-  public void testLimitQueryRegexp() {
-    String query = "select * from table LiMiT 10";
-    String expected = "select * from table limit 5";
+  public void testWatermarkQuery() {
+    String expected = "SELECT * FROM (select * from table) WHERE \"UPDATED\" > '2020-01-01T00:00:00.000000+00:00' " +
+      "AND \"UPDATED\" <= '2020-01-02T00:00:00.000000+00:00'";
 
-    String actual = QueryUtil.limitQuery(query, 5);
+    String actual = QueryUtil.watermarkQuery("select * from table;", "UPDATED", "2020-01-01T00:00:00.000000+00:00",
+                                             "2020-01-02T00:00:00.000000+00:00");
 
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 
   @Test
-  public void testLimitQueryRegexpQuote() {
-    String expected = "select * from table limit 5";
-
-    String query = "select * from table LiMiT ''";
+  public void testWatermarkQueryFirstRun() {
+    String expected = "SELECT * FROM (select * from table) WHERE \"ID\" <= '100'";
 
-    String actual = QueryUtil.limitQuery(query, 5);
+    String actual = QueryUtil.watermarkQuery("select * from table", "ID", null, "100");
 
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 
   @Test
-  public void testLimitQueryRegexpNull() {
-    String expected = "select * from table limit 5";
+  public void testWatermarkQueryEscaping() {
+    String expected = "SELECT * FROM (select * from table) WHERE \"NAME\" > 'it''s \\\\'";
 
-    String query = "select * from table LiMiT null";
+    String actual = QueryUtil.watermarkQuery("select * from table", "NAME", "it's \\", null);
 
-    String actual = QueryUtil.limitQuery(query, 5);
-
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 
   @Test
-  public void testLimitQueryRegexpDollarSign() {
-    String expected = "select * from table limit 5";
+  public void testEmptyQuery() {
+    String expected = "SELECT * FROM (select * from table) WHERE FALSE";
 
-    String query = "select * from table LiMiT $$$$";
+    String actual = QueryUtil.emptyQuery("select * from table;");
 
-    String actual = QueryUtil.limitQuery(query, 5);
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testResultScanQuery() {
+    String expected = "SELECT * FROM TABLE(RESULT_SCAN('01a2b3c4-0000-1111-0000-000000000001'))";
+
+    String actual = QueryUtil.resultScanQuery("01a2b3c4-0000-1111-0000-000000000001");
 
-    Assert.assertNotNull(actual);
     Assert.assertEquals(expected, actual);
   }
 }
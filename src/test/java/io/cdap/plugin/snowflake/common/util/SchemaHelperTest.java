@@ -152,6 +152,37 @@ public class SchemaHelperTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testGetSchemaFromSnowflakeNativeNumberTypes() throws IOException {
+    String importQuery = "SELECT * FROM someTable";
+    MockFailureCollector collector = new MockFailureCollector(MOCK_STAGE);
+    SnowflakeSourceAccessor snowflakeAccessor = Mockito.mock(SnowflakeSourceAccessor.class);
+
+    List<SnowflakeFieldDescriptor> sample = Arrays.asList(
+      new SnowflakeFieldDescriptor("field1", Types.BIGINT, true, 9, 0),
+      new SnowflakeFieldDescriptor("field2", Types.BIGINT, false, 18, 0),
+      new SnowflakeFieldDescriptor("field3", Types.BIGINT, true, 38, 0),
+      new SnowflakeFieldDescriptor("field4", Types.DECIMAL, false, 12, 2),
+      new SnowflakeFieldDescriptor("field5", Types.DOUBLE, true),
+      new SnowflakeFieldDescriptor("field6", Types.VARCHAR, true));
+
+    Schema expected = Schema.recordOf(
+      "data",
+      Schema.Field.of("field1", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("field2", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("field3", Schema.nullableOf(Schema.decimalOf(38, 0))),
+      Schema.Field.of("field4", Schema.decimalOf(12, 2)),
+      Schema.Field.of("field5", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("field6", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    Mockito.when(snowflakeAccessor.describeQuery(importQuery)).thenReturn(sample);
+
+    Schema actual = SchemaHelper.getSchema(snowflakeAccessor, null, collector, importQuery, true);
+
+    Assert.assertTrue(collector.getValidationFailures().isEmpty());
+    Assert.assertEquals(expected, actual);
+  }
+
   @Test
   public void testGetSchemaWhenMacroIsEnabled() {
     Schema expected = Schema.recordOf("test",
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.sink.batch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link CSVBuffer}
+ */
+public class CSVBufferTest {
+
+  @Test
+  public void testWrite() {
+    CSVBuffer csvBuffer = new CSVBuffer(true);
+    write(csvBuffer, Arrays.asList("ID", "NAME", "NOTE"), Arrays.asList("1", "plain", null));
+    write(csvBuffer, Arrays.asList("ID", "NAME", "NOTE"),
+          Arrays.asList("", "with, delimiter", "with \"quotes\""));
+    write(csvBuffer, Arrays.asList("ID", "NAME", "NOTE"),
+          Arrays.asList("#3", "multi\nline", "trailing space "));
+    write(csvBuffer, Arrays.asList("ID", "NAME", "NOTE"), Arrays.asList("4", "ünïcödé 😀", ""));
+
+    String expected = "ID,NAME,NOTE\r\n" +
+      "1,plain,\r\n" +
+      "\"\",\"with, delimiter\",\"with \"\"quotes\"\"\"\r\n" +
+      "\"#3\",\"multi\nline\",\"trailing space \"\r\n" +
+      "4,ünïcödé 😀,\r\n";
+    Assert.assertEquals(expected, new String(csvBuffer.getByteArray(), StandardCharsets.UTF_8));
+    Assert.assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, csvBuffer.size());
+    Assert.assertEquals(4, csvBuffer.getRecordsCount());
+  }
+
+  @Test
+  public void testMoveLastRecord() {
+    CSVBuffer csvBuffer = new CSVBuffer(true);
+    write(csvBuffer, Arrays.asList("ID", "NAME"), Arrays.asList("1", "first"));
+    write(csvBuffer, Arrays.asList("ID", "NAME"), Arrays.asList("2", "second"));
+    CSVBuffer nextBuffer = new CSVBuffer(true);
+    write(nextBuffer, Arrays.asList("ID", "NAME"), Arrays.asList("0", "stale"));
+
+    csvBuffer.moveLastRecord(nextBuffer);
+    Assert.assertEquals("ID,NAME\r\n1,first\r\n", new String(csvBuffer.getByteArray(), StandardCharsets.UTF_8));
+    Assert.assertEquals(1, csvBuffer.getRecordsCount());
+    Assert.assertEquals("ID,NAME\r\n2,second\r\n", new String(nextBuffer.getByteArray(), StandardCharsets.UTF_8));
+    Assert.assertEquals(1, nextBuffer.getRecordsCount());
+
+    write(nextBuffer, Arrays.asList("ID", "NAME"), Arrays.asList("3", "third"));
+    nextBuffer.moveLastRecord(csvBuffer);
+    Assert.assertEquals("ID,NAME\r\n3,third\r\n", new String(csvBuffer.getByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testGrow() {
+    CSVBuffer csvBuffer = new CSVBuffer(false);
+    char[] chars = new char[100_000];
+    Arrays.fill(chars, 'ё');
+    String value = new String(chars);
+
+    write(csvBuffer, Arrays.asList("VALUE"), Arrays.asList(value));
+
+    Assert.assertEquals(value + "\r\n", new String(csvBuffer.getByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testWriteLong() {
+    CSVBuffer csvBuffer = new CSVBuffer(false);
+    long[] values = {0, 7, -7, 1234567890L, Long.MAX_VALUE, Long.MIN_VALUE};
+    StringBuilder expected = new StringBuilder();
+    for (long value : values) {
+      csvBuffer.startRecord(Arrays.asList("VALUE"));
+      csvBuffer.writeLong(value);
+      csvBuffer.endRecord();
+      expected.append(value).append("\r\n");
+    }
+
+    Assert.assertEquals(expected.toString(), new String(csvBuffer.getByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testWriteHex() {
+    CSVBuffer csvBuffer = new CSVBuffer(false);
+    csvBuffer.startRecord(Arrays.asList("VALUE"));
+    csvBuffer.writeHex(new byte[] {0x00, 0x1F, (byte) 0xA0, (byte) 0xFF}, 1, 3);
+    csvBuffer.endRecord();
+
+    Assert.assertEquals("1FA0FF\r\n", new String(csvBuffer.getByteArray(), StandardCharsets.UTF_8));
+  }
+
+  private static void write(CSVBuffer csvBuffer, List<String> columnNames, List<String> values) {
+    csvBuffer.startRecord(columnNames);
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        csvBuffer.writeDelimiter();
+      }
+      csvBuffer.writeValue(values.get(i), i == 0);
+    }
+    csvBuffer.endRecord();
+  }
+}
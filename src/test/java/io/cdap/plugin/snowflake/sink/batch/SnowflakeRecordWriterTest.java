@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.sink.batch;
+
+import com.google.common.io.ByteStreams;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SnowflakeRecordWriter}
+ */
+public class SnowflakeRecordWriterTest {
+
+  private static final String STAGE_PATH = "@~/stage/";
+  private static final Schema SCHEMA = Schema.recordOf("data", Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testUploadFailureFailsWrite() throws IOException {
+    SnowflakeSinkAccessor snowflakeAccessor = Mockito.mock(SnowflakeSinkAccessor.class);
+    Mockito.doThrow(new IOException("Upload failed"))
+      .when(snowflakeAccessor).uploadStream(Matchers.any(InputStream.class), Matchers.anyString());
+    SnowflakeRecordWriter writer = new SnowflakeRecordWriter(createConfig(1), snowflakeAccessor, STAGE_PATH);
+
+    // each record starts a new file, so the failed upload of the first one is awaited before the third one
+    try {
+      for (int i = 0; i < 10; i++) {
+        writer.write(null, createRecord(i));
+      }
+      Assert.fail("Write did not fail");
+    } catch (IOException e) {
+      Assert.assertEquals("Upload failed", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testUploadFailureFailsClose() throws IOException {
+    SnowflakeSinkAccessor snowflakeAccessor = Mockito.mock(SnowflakeSinkAccessor.class);
+    Mockito.doThrow(new IOException("Upload failed"))
+      .when(snowflakeAccessor).uploadStream(Matchers.any(InputStream.class), Matchers.anyString());
+    SnowflakeRecordWriter writer = new SnowflakeRecordWriter(createConfig(1), snowflakeAccessor, STAGE_PATH);
+
+    writer.write(null, createRecord(0));
+    try {
+      writer.close(null);
+      Assert.fail("Close did not fail");
+    } catch (IOException e) {
+      Assert.assertEquals("Upload failed", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testWriteBlocksAtUploadLimit() throws Exception {
+    AtomicInteger uploads = new AtomicInteger();
+    CountDownLatch uploadsStarted = new CountDownLatch(2);
+    CountDownLatch finishUploads = new CountDownLatch(1);
+    SnowflakeSinkAccessor snowflakeAccessor = Mockito.mock(SnowflakeSinkAccessor.class);
+    Mockito.doAnswer(invocation -> {
+      uploads.incrementAndGet();
+      uploadsStarted.countDown();
+      finishUploads.await();
+      return null;
+    }).when(snowflakeAccessor).uploadStream(Matchers.any(InputStream.class), Matchers.eq(STAGE_PATH));
+    SnowflakeRecordWriter writer = new SnowflakeRecordWriter(createConfig(2), snowflakeAccessor, STAGE_PATH);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // the second and third records submit the files of the records before them, the fourth one has to wait
+      Future<?> writes = executor.submit(() -> {
+        for (int i = 0; i < 4; i++) {
+          writer.write(null, createRecord(i));
+        }
+        return null;
+      });
+      Assert.assertTrue(uploadsStarted.await(10, TimeUnit.SECONDS));
+      try {
+        writes.get(200, TimeUnit.MILLISECONDS);
+        Assert.fail("Write did not wait for a pending upload");
+      } catch (TimeoutException e) {
+        // expected
+      }
+      Assert.assertEquals(2, uploads.get());
+
+      finishUploads.countDown();
+      writes.get(10, TimeUnit.SECONDS);
+      writer.close(null);
+      Assert.assertEquals(4, uploads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRecordsAreEncodedWithTheirOwnSchema() throws IOException {
+    ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+    SnowflakeSinkAccessor snowflakeAccessor = Mockito.mock(SnowflakeSinkAccessor.class);
+    Mockito.doAnswer(invocation -> {
+      ByteStreams.copy((InputStream) invocation.getArguments()[0], uploaded);
+      return null;
+    }).when(snowflakeAccessor).uploadStream(Matchers.any(InputStream.class), Matchers.eq(STAGE_PATH));
+    SnowflakeSinkConfig config = createConfig(1);
+    Mockito.when(config.getMaxFileSize()).thenReturn(0L);
+    SnowflakeRecordWriter writer = new SnowflakeRecordWriter(config, snowflakeAccessor, STAGE_PATH);
+    Schema idFirst = Schema.recordOf("data", Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                     Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+    Schema nameFirst = Schema.recordOf("data", Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                       Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+
+    writer.write(null, StructuredRecord.builder(nameFirst).set("name", "a").set("id", 1).build());
+    writer.write(null, StructuredRecord.builder(idFirst).set("id", 2).set("name", "b").build());
+    // equal to the first schema, but another instance
+    Schema nameFirstCopy = Schema.parseJson(nameFirst.toString());
+    writer.write(null, StructuredRecord.builder(nameFirstCopy).set("name", "c").set("id", 3).build());
+    writer.close(null);
+
+    String[] lines = new String(uploaded.toByteArray(), StandardCharsets.UTF_8).split("\\r?\\n");
+    Assert.assertEquals(4, lines.length);
+    Assert.assertEquals("a,1", lines[1]);
+    Assert.assertEquals("2,b", lines[2]);
+    Assert.assertEquals("c,3", lines[3]);
+  }
+
+  private static SnowflakeSinkConfig createConfig(int maxConcurrentUploads) {
+    SnowflakeSinkConfig config = Mockito.mock(SnowflakeSinkConfig.class);
+    // every file is completed after its first record
+    Mockito.when(config.getMaxFileSize()).thenReturn(1L);
+    Mockito.when(config.getStreamingUpload()).thenReturn(false);
+    Mockito.when(config.getMaxConcurrentUploads()).thenReturn(maxConcurrentUploads);
+    return config;
+  }
+
+  private static StructuredRecord createRecord(int i) {
+    return StructuredRecord.builder(SCHEMA).set("name", "name" + i).build();
+  }
+}
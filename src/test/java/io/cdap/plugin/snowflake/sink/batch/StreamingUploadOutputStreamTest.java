@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.sink.batch;
+
+import com.google.common.io.ByteStreams;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for {@link StreamingUploadOutputStream}
+ */
+public class StreamingUploadOutputStreamTest {
+
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+
+  @AfterClass
+  public static void tearDown() {
+    EXECUTOR.shutdownNow();
+  }
+
+  @Test
+  public void testUpload() throws IOException {
+    ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+    SnowflakeSinkAccessor snowflakeAccessor = Mockito.mock(SnowflakeSinkAccessor.class);
+    Mockito.doAnswer(invocation -> {
+      ByteStreams.copy((InputStream) invocation.getArguments()[0], uploaded);
+      return null;
+    }).when(snowflakeAccessor).uploadStream(Matchers.any(InputStream.class), Matchers.eq("@~/stage/"));
+
+    byte[] data = new byte[100_000];
+    new Random(42).nextBytes(data);
+    try (StreamingUploadOutputStream stream = new StreamingUploadOutputStream(snowflakeAccessor, "@~/stage/",
+                                                                              EXECUTOR, 2)) {
+      for (int offset = 0; offset < data.length; offset += 1000) {
+        stream.write(data, offset, 1000);
+      }
+    }
+
+    Assert.assertArrayEquals(data, uploaded.toByteArray());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUploadFailure() throws IOException {
+    SnowflakeSinkAccessor snowflakeAccessor = Mockito.mock(SnowflakeSinkAccessor.class);
+    Mockito.doThrow(new IOException("Upload failed"))
+      .when(snowflakeAccessor).uploadStream(Matchers.any(InputStream.class), Matchers.anyString());
+
+    try (StreamingUploadOutputStream stream = new StreamingUploadOutputStream(snowflakeAccessor, "@~/stage/",
+                                                                              EXECUTOR, 2)) {
+      // more chunks than the queue holds, so the writer notices that the upload stopped reading
+      for (int i = 0; i < 10; i++) {
+        stream.write(new byte[1000]);
+      }
+    }
+  }
+}
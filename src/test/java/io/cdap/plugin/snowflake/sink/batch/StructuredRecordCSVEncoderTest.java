@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.snowflake.sink.batch;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link StructuredRecordCSVEncoder}
+ */
+public class StructuredRecordCSVEncoderTest {
+
+  private static final Schema NESTED_SCHEMA = Schema.recordOf(
+    "nested",
+    Schema.Field.of("A", Schema.of(Schema.Type.INT)));
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("ID", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("NAME", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("ACTIVE", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("PRICE", Schema.decimalOf(10, 2)),
+    Schema.Field.of("CREATED", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("UPDATED", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("DATA", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("TAGS", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("NESTED", Schema.nullableOf(NESTED_SCHEMA)));
+
+  @Test
+  public void testEncode() throws Exception {
+    StructuredRecord first = StructuredRecord.builder(SCHEMA)
+      .set("ID", -42L)
+      .set("NAME", "with, delimiter")
+      .set("ACTIVE", true)
+      .setDecimal("PRICE", new BigDecimal("12.30"))
+      .setDate("CREATED", LocalDate.of(2020, 5, 17))
+      .set("UPDATED", 1589673600123456L)
+      .set("DATA", ByteBuffer.wrap(new byte[] {0x0A, (byte) 0xFF}))
+      .set("TAGS", Arrays.asList("a", "b"))
+      .set("NESTED", StructuredRecord.builder(NESTED_SCHEMA).set("A", 1).build())
+      .build();
+    StructuredRecord second = StructuredRecord.builder(SCHEMA)
+      .set("ID", 7L)
+      .set("ACTIVE", false)
+      .setDecimal("PRICE", new BigDecimal("-0.05"))
+      .setDate("CREATED", LocalDate.of(1970, 1, 1))
+      .build();
+
+    StructuredRecordCSVEncoder encoder = new StructuredRecordCSVEncoder(SCHEMA);
+    CSVBuffer csvBuffer = new CSVBuffer(true);
+    encoder.encode(first, csvBuffer);
+    encoder.encode(second, csvBuffer);
+
+    String expected = "ID,NAME,ACTIVE,PRICE,CREATED,UPDATED,DATA,TAGS,NESTED\r\n" +
+      "-42,\"with, delimiter\",true,12.30,2020-05-17,2020-05-17T00:00:00.123Z,0AFF," +
+      "\"[\"\"a\"\",\"\"b\"\"]\",\"{\"\"A\"\":1}\"\r\n" +
+      "7,,false,-0.05,1970-01-01,,,,\r\n";
+    Assert.assertEquals(expected, new String(csvBuffer.getByteArray(), StandardCharsets.UTF_8));
+    Assert.assertEquals(2, csvBuffer.getRecordsCount());
+  }
+}
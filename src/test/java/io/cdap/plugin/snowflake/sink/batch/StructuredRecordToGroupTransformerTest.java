@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.snowflake.sink.batch;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+
+/**
+ * Tests for {@link StructuredRecordToGroupTransformer}
+ */
+public class StructuredRecordToGroupTransformerTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("ID", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("NAME", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("PRICE", Schema.decimalOf(10, 2)),
+    Schema.Field.of("CREATED", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("UPDATED", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("DATA", Schema.nullableOf(Schema.of(Schema.Type.BYTES))));
+
+  @Test
+  public void testParquetSchema() {
+    MessageType parquetSchema = new StructuredRecordToGroupTransformer(SCHEMA).getParquetSchema();
+
+    Assert.assertEquals(SCHEMA.getFields().size(), parquetSchema.getFieldCount());
+    Assert.assertEquals(Type.Repetition.REQUIRED, parquetSchema.getType("ID").getRepetition());
+    Assert.assertEquals(Type.Repetition.OPTIONAL, parquetSchema.getType("NAME").getRepetition());
+    Assert.assertEquals(LogicalTypeAnnotation.stringType(), parquetSchema.getType("NAME").getLogicalTypeAnnotation());
+    Assert.assertEquals(LogicalTypeAnnotation.decimalType(2, 10),
+                        parquetSchema.getType("PRICE").getLogicalTypeAnnotation());
+    Assert.assertEquals(LogicalTypeAnnotation.dateType(), parquetSchema.getType("CREATED").getLogicalTypeAnnotation());
+    Assert.assertEquals(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MICROS),
+                        parquetSchema.getType("UPDATED").getLogicalTypeAnnotation());
+    Assert.assertEquals(PrimitiveType.PrimitiveTypeName.BINARY,
+                        parquetSchema.getType("DATA").asPrimitiveType().getPrimitiveTypeName());
+  }
+
+  @Test
+  public void testTransform() {
+    LocalDate created = LocalDate.of(2020, 5, 17);
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("ID", 42L)
+      .set("NAME", "name")
+      .setDecimal("PRICE", new BigDecimal("-12.34"))
+      .setDate("CREATED", created)
+      .set("UPDATED", 1589673600000001L)
+      .build();
+
+    Group group = new StructuredRecordToGroupTransformer(SCHEMA).transform(record);
+
+    Assert.assertEquals(42L, group.getLong("ID", 0));
+    Assert.assertEquals("name", group.getString("NAME", 0));
+    Assert.assertEquals(new BigDecimal("-12.34"),
+                        new BigDecimal(new BigInteger(group.getBinary("PRICE", 0).getBytes()), 2));
+    Assert.assertEquals(created.toEpochDay(), group.getInteger("CREATED", 0));
+    Assert.assertEquals(1589673600000001L, group.getLong("UPDATED", 0));
+    Assert.assertEquals(0, group.getFieldRepetitionCount("DATA"));
+  }
+
+  @Test
+  public void testIsSupported() {
+    Assert.assertTrue(StructuredRecordToGroupTransformer.isSupported(Schema.of(Schema.LogicalType.TIME_MILLIS)));
+    Assert.assertTrue(StructuredRecordToGroupTransformer.isSupported(Schema.enumWith("A", "B")));
+    Assert.assertFalse(StructuredRecordToGroupTransformer.isSupported(Schema.arrayOf(Schema.of(Schema.Type.INT))));
+    Assert.assertFalse(StructuredRecordToGroupTransformer.isSupported(
+      Schema.recordOf("nested", Schema.Field.of("A", Schema.of(Schema.Type.INT)))));
+  }
+}
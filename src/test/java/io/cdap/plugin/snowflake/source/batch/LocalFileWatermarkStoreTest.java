@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Tests for {@link LocalFileWatermarkStore}
+ */
+public class LocalFileWatermarkStoreTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testPutWatermark() throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("watermarks").resolve("snowflake.properties");
+    WatermarkStore store = new LocalFileWatermarkStore(file);
+
+    Assert.assertNull(store.getWatermark("orders"));
+
+    store.putWatermark("orders", "100");
+    store.putWatermark("customers", "2020-01-01T00:00:00.000000+00:00");
+    store.putWatermark("orders", "200");
+
+    WatermarkStore reopened = new LocalFileWatermarkStore(file);
+    Assert.assertEquals("200", reopened.getWatermark("orders"));
+    Assert.assertEquals("2020-01-01T00:00:00.000000+00:00", reopened.getWatermark("customers"));
+  }
+
+  @Test
+  public void testWatermarkKeyedByColumnAndQuery() throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("snowflake.properties");
+    WatermarkStore store = new LocalFileWatermarkStore(file);
+
+    String query = "SELECT * FROM ORDERS";
+    store.putWatermark(WatermarkStore.getKey("orders", "ID", query), "100");
+
+    Assert.assertEquals("100", store.getWatermark(WatermarkStore.getKey("orders", "ID", query)));
+    Assert.assertNull(store.getWatermark(WatermarkStore.getKey("orders", "UPDATED_AT", query)));
+    Assert.assertNull(store.getWatermark(WatermarkStore.getKey("orders", "ID", query + " WHERE ID > 10")));
+    Assert.assertNull(store.getWatermark(WatermarkStore.getKey("customers", "ID", query)));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import com.google.common.io.ByteStreams;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tests for {@link PrefetchingInputStream}
+ */
+public class PrefetchingInputStreamTest {
+
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+
+  @AfterClass
+  public static void tearDown() {
+    EXECUTOR.shutdownNow();
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    byte[] data = new byte[100_000];
+    new Random(42).nextBytes(data);
+    byte[] compressed = gzip(data);
+
+    try (PrefetchingInputStream stream = new PrefetchingInputStream(() -> new ByteArrayInputStream(compressed),
+                                                                    EXECUTOR, 1000, 3)) {
+      Assert.assertArrayEquals(data, ByteStreams.toByteArray(stream));
+      Assert.assertEquals(-1, stream.read());
+      Assert.assertEquals(compressed.length, stream.getSourceBytes());
+    }
+  }
+
+  @Test
+  public void testReadEmpty() throws IOException {
+    byte[] compressed = gzip(new byte[0]);
+
+    try (PrefetchingInputStream stream = new PrefetchingInputStream(() -> new ByteArrayInputStream(compressed),
+                                                                    EXECUTOR, 1000, 3)) {
+      Assert.assertEquals(-1, stream.read());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpenFailure() throws IOException {
+    try (InputStream stream = new PrefetchingInputStream(() -> {
+      throw new IOException("Download failed");
+    }, EXECUTOR, 1000, 3)) {
+      stream.read();
+    }
+  }
+
+  @Test
+  public void testCloseBeforeEnd() throws IOException {
+    byte[] compressed = gzip(new byte[100_000]);
+
+    PrefetchingInputStream stream = new PrefetchingInputStream(() -> new ByteArrayInputStream(compressed),
+                                                               EXECUTOR, 1000, 3);
+    Assert.assertEquals(0, stream.read());
+    // the download waits for free chunks, closing must not block
+    stream.close();
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(data);
+    }
+    return output.toByteArray();
+  }
+}
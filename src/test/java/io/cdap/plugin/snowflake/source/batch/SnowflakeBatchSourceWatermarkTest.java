@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+
+/**
+ * Tests for incremental reads of {@link SnowflakeBatchSource}
+ */
+public class SnowflakeBatchSourceWatermarkTest {
+
+  private static final String IMPORT_QUERY = "SELECT * FROM ORDERS";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SnowflakeBatchSourceConfig config;
+  private SnowflakeSourceAccessor snowflakeAccessor;
+  private WatermarkStore watermarkStore;
+  private String watermarkKey;
+
+  @Before
+  public void setUp() {
+    config = Mockito.mock(SnowflakeBatchSourceConfig.class);
+    Mockito.when(config.getReferenceName()).thenReturn("orders");
+    Mockito.when(config.getImportQuery()).thenReturn(IMPORT_QUERY);
+    Mockito.when(config.getWatermarkColumn()).thenReturn("ID");
+    Mockito.when(config.getReadMode()).thenReturn(ReadMode.STAGE);
+    snowflakeAccessor = Mockito.mock(SnowflakeSourceAccessor.class);
+    watermarkStore = new LocalFileWatermarkStore(temporaryFolder.getRoot().toPath().resolve("watermarks"));
+    watermarkKey = WatermarkStore.getKey("orders", "ID", IMPORT_QUERY);
+  }
+
+  @Test
+  public void testReadUpToMaxValue() throws IOException {
+    watermarkStore.putWatermark(watermarkKey, "100");
+    Mockito.when(snowflakeAccessor.getMaxValue(Matchers.anyString(), Matchers.eq("ID"))).thenReturn("200");
+    SnowflakeBatchSource source = createSource();
+
+    String actual = source.getImportQuery(snowflakeAccessor);
+    source.onRunFinish(true, null);
+
+    Assert.assertEquals("SELECT * FROM (SELECT * FROM (SELECT * FROM ORDERS) WHERE \"ID\" > '100') " +
+                          "WHERE \"ID\" <= '200'", actual);
+    Assert.assertEquals("200", watermarkStore.getWatermark(watermarkKey));
+  }
+
+  @Test
+  public void testNothingAboveWatermark() throws IOException {
+    watermarkStore.putWatermark(watermarkKey, "100");
+    Mockito.when(snowflakeAccessor.getMaxValue(Matchers.anyString(), Matchers.eq("ID"))).thenReturn(null);
+    SnowflakeBatchSource source = createSource();
+
+    String actual = source.getImportQuery(snowflakeAccessor);
+    source.onRunFinish(true, null);
+
+    // rows added after the maximum was taken are left to the next run
+    Assert.assertEquals("SELECT * FROM (SELECT * FROM (SELECT * FROM ORDERS) WHERE \"ID\" > '100') WHERE FALSE",
+                        actual);
+    Assert.assertEquals("100", watermarkStore.getWatermark(watermarkKey));
+  }
+
+  @Test
+  public void testFirstRunOfEmptyTable() throws IOException {
+    Mockito.when(snowflakeAccessor.getMaxValue(Matchers.anyString(), Matchers.eq("ID"))).thenReturn(null);
+    SnowflakeBatchSource source = createSource();
+
+    String actual = source.getImportQuery(snowflakeAccessor);
+    source.onRunFinish(true, null);
+
+    Assert.assertEquals("SELECT * FROM (SELECT * FROM ORDERS) WHERE FALSE", actual);
+    Assert.assertNull(watermarkStore.getWatermark(watermarkKey));
+  }
+
+  private SnowflakeBatchSource createSource() {
+    return new SnowflakeBatchSource(config) {
+      @Override
+      protected WatermarkStore createWatermarkStore() {
+        return watermarkStore;
+      }
+    };
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link SnowflakeCsvParser}
+ */
+public class SnowflakeCsvParserTest {
+
+  @Test
+  public void testParse() throws IOException {
+    String csv = "ID,NAME,NOTE\n" +
+      "1,plain,\n" +
+      "2,\"with, delimiter\",\"\"\n" +
+      "3,\"with \"\"quotes\"\"\",\"multi\nline\"\n" +
+      "4,ünïcödé,last";
+
+    Assert.assertEquals(Arrays.asList(
+      Arrays.asList("ID", "NAME", "NOTE"),
+      Arrays.asList("1", "plain", ""),
+      Arrays.asList("2", "with, delimiter", ""),
+      Arrays.asList("3", "with \"quotes\"", "multi\nline"),
+      Arrays.asList("4", "ünïcödé", "last")), parse(csv, 1024));
+  }
+
+  @Test
+  public void testRecordsLongerThanBuffer() throws IOException {
+    StringBuilder csv = new StringBuilder();
+    List<List<String>> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      String text = String.join("", Collections.nCopies(i, "ab\"c"));
+      csv.append(i).append(",\"").append(text.replace("\"", "\"\"")).append("\"\r\n");
+      expected.add(Arrays.asList(String.valueOf(i), text));
+    }
+
+    Assert.assertEquals(expected, parse(csv.toString(), 16));
+  }
+
+  @Test
+  public void testFieldView() throws IOException {
+    SnowflakeCsvParser parser = new SnowflakeCsvParser();
+    parser.reset(new ByteArrayInputStream("2019-01-01,123.45\n".getBytes(StandardCharsets.UTF_8)));
+
+    Assert.assertTrue(parser.next());
+    Assert.assertEquals(2, parser.getFieldCount());
+    CharSequence field = parser.getField(1);
+    Assert.assertEquals(6, field.length());
+    Assert.assertEquals('.', field.charAt(3));
+    Assert.assertEquals("45", field.subSequence(4, 6).toString());
+    Assert.assertFalse(parser.next());
+  }
+
+  private static List<List<String>> parse(String csv, int bufferSize) throws IOException {
+    SnowflakeCsvParser parser = new SnowflakeCsvParser(bufferSize);
+    parser.reset(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    List<List<String>> records = new ArrayList<>();
+    String[] record;
+    while ((record = parser.readNextAsStrings()) != null) {
+      records.add(Arrays.asList(record));
+    }
+    return records;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link SnowflakeInputFormat}
+ */
+public class SnowflakeInputFormatTest {
+
+  @Test
+  public void combineSplits() {
+    List<SnowflakeSplit> splits = Arrays.asList(
+      new SnowflakeSplit("data_0", 30),
+      new SnowflakeSplit("data_1", 70),
+      new SnowflakeSplit("data_2", 20),
+      new SnowflakeSplit("data_3", 150),
+      new SnowflakeSplit("data_4", 60),
+      new SnowflakeSplit("data_5", 10));
+
+    List<SnowflakeSplit> actual = SnowflakeInputFormat.combineSplits(splits, 100);
+
+    Assert.assertEquals(3, actual.size());
+    Assert.assertEquals(Collections.singletonList("data_3"), actual.get(0).getStageFiles());
+    Assert.assertEquals(150, actual.get(0).getLength());
+    Assert.assertEquals(Arrays.asList("data_1", "data_0"), actual.get(1).getStageFiles());
+    Assert.assertEquals(100, actual.get(1).getLength());
+    Assert.assertEquals(Arrays.asList("data_4", "data_2", "data_5"), actual.get(2).getStageFiles());
+    Assert.assertEquals(90, actual.get(2).getLength());
+  }
+
+  @Test
+  public void combineSplitsKeepsAllFiles() {
+    List<SnowflakeSplit> splits = Arrays.asList(
+      new SnowflakeSplit("data_0", 10),
+      new SnowflakeSplit("data_1", 10),
+      new SnowflakeSplit("data_2", 10));
+
+    List<SnowflakeSplit> actual = SnowflakeInputFormat.combineSplits(splits, 1000);
+
+    Assert.assertEquals(1, actual.size());
+    Assert.assertEquals(3, actual.get(0).getStageFiles().size());
+    Assert.assertEquals(30, actual.get(0).getLength());
+  }
+}
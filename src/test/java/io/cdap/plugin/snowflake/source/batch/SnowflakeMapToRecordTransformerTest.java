@@ -17,11 +17,18 @@
 package io.cdap.plugin.snowflake.source.batch;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.snowflake.Constants;
 import io.cdap.plugin.snowflake.ValidationAssertions;
+import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.HashMap;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -31,7 +38,7 @@ public class SnowflakeMapToRecordTransformerTest {
 
   @Test
   public void transform() {
-    Map<String, String> row = new HashMap<>();
+    Map<String, String> row = new LinkedHashMap<>();
     row.put("COLUMN_NUMBER", "101");
     row.put("COLUMN_DECIMAL", "102");
     row.put("COLUMN_NUMERIC", "103");
@@ -68,8 +75,46 @@ public class SnowflakeMapToRecordTransformerTest {
     SnowflakeMapToRecordTransformer transformer =
       new SnowflakeMapToRecordTransformer(Constants.TEST_TABLE_SCHEMA);
 
-    StructuredRecord actual = transformer.transform(row);
+    SnowflakeRow snowflakeRow = new SnowflakeRow(row.keySet().toArray(new String[0]));
+    snowflakeRow.setValues(row.values().toArray(new String[0]));
+    StructuredRecord actual = transformer.transform(snowflakeRow);
 
     ValidationAssertions.assertTestTableResults(Constants.TEST_TABLE_EXPECTED, actual);
   }
+
+  @Test
+  public void transformTypedRow() {
+    Schema schema = Schema.recordOf(
+      "output",
+      Schema.Field.of("COLUMN_DECIMAL", Schema.nullableOf(Schema.decimalOf(38, 2))),
+      Schema.Field.of("COLUMN_DOUBLE", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("COLUMN_STRING", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("COLUMN_BINARY", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+      Schema.Field.of("COLUMN_BOOLEAN", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+      Schema.Field.of("COLUMN_DATE", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("COLUMN_TIME", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MICROS))),
+      Schema.Field.of("COLUMN_TIMESTAMP", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+      Schema.Field.of("COLUMN_EMPTY", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    ZonedDateTime timestamp = ZonedDateTime.of(2019, 1, 1, 1, 1, 1, 0, ZoneOffset.UTC);
+    SnowflakeRow snowflakeRow = new SnowflakeRow(new String[] {
+      "COLUMN_DECIMAL", "COLUMN_DOUBLE", "COLUMN_STRING", "COLUMN_BINARY", "COLUMN_BOOLEAN", "COLUMN_DATE",
+      "COLUMN_TIME", "COLUMN_TIMESTAMP", "COLUMN_EMPTY"}, true);
+    snowflakeRow.setValues(new Object[] {
+      new BigDecimal("102.5"), 111.1, "", new byte[] {1, 2}, true, (int) LocalDate.of(2019, 1, 1).toEpochDay(),
+      LocalTime.of(1, 1, 1).toNanoOfDay() / 1000L, timestamp.toEpochSecond() * 1000000L, null});
+
+    StructuredRecord actual = new SnowflakeMapToRecordTransformer(schema).transform(snowflakeRow);
+
+    Assert.assertEquals(new BigDecimal("102.50"), actual.getDecimal("COLUMN_DECIMAL"));
+    Assert.assertEquals(111.1, actual.<Double>get("COLUMN_DOUBLE"), 0);
+    // empty string is a value in typed rows
+    Assert.assertEquals("", actual.get("COLUMN_STRING"));
+    Assert.assertArrayEquals(new byte[] {1, 2}, actual.<byte[]>get("COLUMN_BINARY"));
+    Assert.assertTrue(actual.<Boolean>get("COLUMN_BOOLEAN"));
+    Assert.assertEquals(LocalDate.of(2019, 1, 1), actual.getDate("COLUMN_DATE"));
+    Assert.assertEquals(LocalTime.of(1, 1, 1), actual.getTime("COLUMN_TIME"));
+    Assert.assertEquals(timestamp, actual.getTimestamp("COLUMN_TIMESTAMP", ZoneOffset.UTC));
+    Assert.assertNull(actual.get("COLUMN_EMPTY"));
+  }
 }
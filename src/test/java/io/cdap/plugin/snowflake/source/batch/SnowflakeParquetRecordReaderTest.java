@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.NanoTime;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link SnowflakeParquetRecordReader}
+ */
+public class SnowflakeParquetRecordReaderTest {
+
+  private static final MessageType SCHEMA = MessageTypeParser.parseMessageType(
+    "message row {\n" +
+      "  optional int32 DEC32 (DECIMAL(9,2));\n" +
+      "  optional int64 DEC64 (DECIMAL(18,3));\n" +
+      "  optional binary DECBIN (DECIMAL(38,4));\n" +
+      "  optional int96 TS96;\n" +
+      "  optional int64 TS_MILLIS (TIMESTAMP(MILLIS,true));\n" +
+      "  optional int64 TS_MICROS (TIMESTAMP(MICROS,true));\n" +
+      "  optional int64 TS_NANOS (TIMESTAMP(NANOS,true));\n" +
+      "  optional int32 TIME_MILLIS (TIME(MILLIS,false));\n" +
+      "  optional int64 TIME_MICROS (TIME(MICROS,false));\n" +
+      "  optional int64 TIME_NANOS (TIME(NANOS,false));\n" +
+      "  optional binary NAME (STRING);\n" +
+      "  optional binary DATA;\n" +
+      "  optional int32 DAY (DATE);\n" +
+      "  optional boolean FLAG;\n" +
+      "  optional float FLOAT;\n" +
+      "  optional double DOUBLE;\n" +
+      "}");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Map<String, java.nio.file.Path> stageFiles = new HashMap<>();
+  private SnowflakeSourceAccessor snowflakeAccessor;
+
+  @Before
+  public void setUp() throws IOException {
+    snowflakeAccessor = Mockito.mock(SnowflakeSourceAccessor.class);
+    Mockito.doAnswer(invocation -> {
+      java.nio.file.Path destination = (java.nio.file.Path) invocation.getArguments()[1];
+      Files.copy(stageFiles.get((String) invocation.getArguments()[0]), destination,
+                 StandardCopyOption.REPLACE_EXISTING);
+      return null;
+    }).when(snowflakeAccessor).downloadStageFile(Matchers.anyString(), Matchers.any(java.nio.file.Path.class));
+  }
+
+  @Test
+  public void testDecodeValues() throws Exception {
+    SimpleGroupFactory groupFactory = new SimpleGroupFactory(SCHEMA);
+    Group group = groupFactory.newGroup()
+      .append("DEC32", 12345)
+      .append("DEC64", -123456789L)
+      .append("DECBIN", Binary.fromConstantByteArray(new BigInteger("-12345678901234567890").toByteArray()))
+      .append("TS_MILLIS", 1600000000123L)
+      .append("TS_MICROS", 1600000000123456L)
+      .append("TS_NANOS", -1500L)
+      .append("TIME_MILLIS", 3600000)
+      .append("TIME_MICROS", 3600000001L)
+      .append("TIME_NANOS", 3600000001999L)
+      .append("NAME", "héllo")
+      .append("DATA", Binary.fromConstantByteArray(new byte[] {1, 2, 3}))
+      .append("DAY", 18000)
+      .append("FLAG", true)
+      .append("FLOAT", 1.5f)
+      .append("DOUBLE", 2.25);
+    // one day and 1.5 milliseconds after the epoch
+    group.add("TS96", new NanoTime(2440589, 1500000L));
+    writeStageFile("data_0", SCHEMA, group, groupFactory.newGroup());
+
+    SnowflakeParquetRecordReader reader = createReader(Collections.singletonList("data_0"));
+
+    Assert.assertTrue(reader.nextKeyValue());
+    SnowflakeRow row = reader.getCurrentValue();
+    Assert.assertTrue(row.isTyped());
+    Assert.assertEquals(new BigDecimal("123.45"), get(row, "DEC32"));
+    Assert.assertEquals(new BigDecimal("-123456.789"), get(row, "DEC64"));
+    Assert.assertEquals(new BigDecimal("-1234567890123456.7890"), get(row, "DECBIN"));
+    Assert.assertEquals(86400001500L, get(row, "TS96"));
+    Assert.assertEquals(1600000000123000L, get(row, "TS_MILLIS"));
+    Assert.assertEquals(1600000000123456L, get(row, "TS_MICROS"));
+    // nanoseconds are rounded down, also before the epoch
+    Assert.assertEquals(-2L, get(row, "TS_NANOS"));
+    Assert.assertEquals(3600000000L, get(row, "TIME_MILLIS"));
+    Assert.assertEquals(3600000001L, get(row, "TIME_MICROS"));
+    Assert.assertEquals(3600000001L, get(row, "TIME_NANOS"));
+    Assert.assertEquals("héllo", get(row, "NAME"));
+    Assert.assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) get(row, "DATA"));
+    Assert.assertEquals(18000, get(row, "DAY"));
+    Assert.assertEquals(true, get(row, "FLAG"));
+    Assert.assertEquals(1.5, get(row, "FLOAT"));
+    Assert.assertEquals(2.25, get(row, "DOUBLE"));
+
+    Assert.assertTrue(reader.nextKeyValue());
+    for (int i = 0; i < row.size(); i++) {
+      Assert.assertNull(row.getHeaders()[i], row.get(i));
+    }
+
+    Assert.assertFalse(reader.nextKeyValue());
+    reader.close();
+  }
+
+  @Test
+  public void testProgressOverFiles() throws Exception {
+    MessageType schema = MessageTypeParser.parseMessageType("message row { required int64 ID; }");
+    SimpleGroupFactory groupFactory = new SimpleGroupFactory(schema);
+    long firstSize = writeStageFile("data_0", schema, groupFactory.newGroup().append("ID", 1L),
+                                    groupFactory.newGroup().append("ID", 2L));
+    long secondSize = writeStageFile("data_1", schema, groupFactory.newGroup().append("ID", 3L));
+
+    SnowflakeParquetRecordReader reader = createReader(Arrays.asList("data_0", "data_1"), firstSize + secondSize);
+    Assert.assertEquals(0, reader.getProgress(), 0);
+
+    Assert.assertTrue(reader.nextKeyValue());
+    Assert.assertEquals(1L, reader.getCurrentValue().get(0));
+    Assert.assertEquals(firstSize / 2f / (firstSize + secondSize), reader.getProgress(), 0.001);
+
+    Assert.assertTrue(reader.nextKeyValue());
+    Assert.assertEquals(2L, reader.getCurrentValue().get(0));
+    Assert.assertEquals((float) firstSize / (firstSize + secondSize), reader.getProgress(), 0.001);
+
+    Assert.assertTrue(reader.nextKeyValue());
+    Assert.assertEquals(3L, reader.getCurrentValue().get(0));
+    Assert.assertEquals(1, reader.getProgress(), 0.001);
+
+    Assert.assertFalse(reader.nextKeyValue());
+    Assert.assertEquals(1, reader.getProgress(), 0);
+    reader.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testNestedColumnIsRejected() throws Exception {
+    MessageType schema = MessageTypeParser.parseMessageType(
+      "message row { optional group ADDRESS { optional binary CITY (STRING); } }");
+    SimpleGroupFactory groupFactory = new SimpleGroupFactory(schema);
+    Group group = groupFactory.newGroup();
+    group.addGroup("ADDRESS").append("CITY", "Berlin");
+    writeStageFile("data_0", schema, group);
+
+    createReader(Collections.singletonList("data_0"));
+  }
+
+  private long writeStageFile(String name, MessageType schema, Group... groups) throws IOException {
+    java.nio.file.Path file = temporaryFolder.getRoot().toPath().resolve(name + ".parquet");
+    try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new Path(file.toUri()))
+      .withConf(new Configuration())
+      .withType(schema)
+      .build()) {
+      for (Group group : groups) {
+        writer.write(group);
+      }
+    }
+    stageFiles.put(name, file);
+    return Files.size(file);
+  }
+
+  private SnowflakeParquetRecordReader createReader(List<String> files) throws Exception {
+    return createReader(files, 1);
+  }
+
+  private SnowflakeParquetRecordReader createReader(List<String> files, long length) throws Exception {
+    InputSplit inputSplit = Mockito.mock(InputSplit.class);
+    Mockito.when(inputSplit.getLength()).thenReturn(length);
+    TaskAttemptContext context = Mockito.mock(TaskAttemptContext.class);
+    Mockito.when(context.getConfiguration()).thenReturn(new Configuration());
+
+    SnowflakeParquetRecordReader reader = new SnowflakeParquetRecordReader(files, snowflakeAccessor);
+    reader.initialize(inputSplit, context);
+    return reader;
+  }
+
+  private static Object get(SnowflakeRow row, String column) {
+    return row.get(Arrays.asList(row.getHeaders()).indexOf(column));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import net.snowflake.client.jdbc.SnowflakeResultSetSerializable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+/**
+ * Tests for {@link SnowflakeResultSetRecordReader}
+ */
+public class SnowflakeResultSetRecordReaderTest {
+
+  @Test
+  public void testReadChunk() throws Exception {
+    SnowflakeResultSetSerializable resultSetChunk = Mockito.mock(SnowflakeResultSetSerializable.class);
+    Mockito.when(resultSetChunk.getRowCount()).thenReturn(2L);
+    ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+    Mockito.when(metaData.getColumnCount()).thenReturn(2);
+    Mockito.when(metaData.getColumnName(1)).thenReturn("ID");
+    Mockito.when(metaData.getColumnName(2)).thenReturn("NAME");
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+    Mockito.when(resultSet.next()).thenReturn(true, true, false);
+    Mockito.when(resultSet.getString(1)).thenReturn("1", "2");
+    Mockito.when(resultSet.getString(2)).thenReturn("first", null);
+    SnowflakeSourceAccessor snowflakeAccessor = Mockito.mock(SnowflakeSourceAccessor.class);
+    Mockito.when(snowflakeAccessor.openResultSetSplit(resultSetChunk)).thenReturn(resultSet);
+
+    SnowflakeResultSetRecordReader reader = new SnowflakeResultSetRecordReader(resultSetChunk, snowflakeAccessor);
+    reader.initialize(new SnowflakeResultSetSplit(resultSetChunk), null);
+    Assert.assertEquals(0, reader.getProgress(), 0);
+
+    Assert.assertTrue(reader.nextKeyValue());
+    SnowflakeRow row = reader.getCurrentValue();
+    Assert.assertArrayEquals(new String[] {"ID", "NAME"}, row.getHeaders());
+    Assert.assertFalse(row.isTyped());
+    Assert.assertEquals("1", row.get(0));
+    Assert.assertEquals("first", row.get(1));
+    Assert.assertEquals(0.5, reader.getProgress(), 0.001);
+
+    Assert.assertTrue(reader.nextKeyValue());
+    Assert.assertEquals("2", row.get(0));
+    Assert.assertNull(row.get(1));
+    Assert.assertEquals(1, reader.getProgress(), 0.001);
+
+    Assert.assertFalse(reader.nextKeyValue());
+    reader.close();
+    Mockito.verify(resultSet).close();
+  }
+
+  @Test
+  public void testEmptyChunk() throws Exception {
+    SnowflakeResultSetSerializable resultSetChunk = Mockito.mock(SnowflakeResultSetSerializable.class);
+    ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+    SnowflakeSourceAccessor snowflakeAccessor = Mockito.mock(SnowflakeSourceAccessor.class);
+    Mockito.when(snowflakeAccessor.openResultSetSplit(resultSetChunk)).thenReturn(resultSet);
+
+    SnowflakeResultSetRecordReader reader = new SnowflakeResultSetRecordReader(resultSetChunk, snowflakeAccessor);
+    reader.initialize(new SnowflakeResultSetSplit(resultSetChunk), null);
+
+    Assert.assertFalse(reader.nextKeyValue());
+    Assert.assertEquals(0, reader.getProgress(), 0);
+    reader.close();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.snowflake.source.batch;
+
+import net.snowflake.client.jdbc.SnowflakeResultSetSerializable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Tests for {@link SnowflakeResultSetSplit}
+ */
+public class SnowflakeResultSetSplitTest {
+
+  @Test
+  public void testWriteReadFields() throws Exception {
+    SnowflakeResultSetSerializable resultSetChunk =
+      Mockito.mock(SnowflakeResultSetSerializable.class, Mockito.withSettings().serializable());
+    Mockito.when(resultSetChunk.getCompressedDataSizeInBytes()).thenReturn(1234L);
+    Mockito.when(resultSetChunk.getRowCount()).thenReturn(10L);
+    SnowflakeResultSetSplit split = new SnowflakeResultSetSplit(resultSetChunk);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      split.write(out);
+    }
+    SnowflakeResultSetSplit actual = new SnowflakeResultSetSplit();
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      actual.readFields(in);
+      // all the written bytes are consumed
+      Assert.assertEquals(-1, in.read());
+    }
+
+    Assert.assertNotSame(resultSetChunk, actual.getResultSetChunk());
+    Assert.assertEquals(1234L, actual.getLength());
+    Assert.assertEquals(10L, actual.getResultSetChunk().getRowCount());
+    Assert.assertEquals(0, actual.getLocations().length);
+  }
+}